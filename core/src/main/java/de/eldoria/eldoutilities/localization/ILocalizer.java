@@ -102,6 +102,29 @@ public interface ILocalizer {
     @Nullable
     String getValue(String key, String language);
 
+    /**
+     * Get the locale which is used for a sender.
+     *
+     * @param sender sender or null for the default locale
+     * @return locale or null if the localizer can not provide the locale of a sender
+     * @since 2.2.0
+     */
+    @Nullable
+    default String getLocale(@Nullable CommandSender sender) {
+        return null;
+    }
+
+    /**
+     * Registers a listener, which is called whenever the messages of this localizer change.
+     * <p>
+     * Localizers which return a locale via {@link #getLocale(CommandSender)} have to call the listeners.
+     *
+     * @param listener listener
+     * @since 2.2.0
+     */
+    default void addReloadListener(Runnable listener) {
+    }
+
     ResourceBundle localeBundle(String language);
 
     ResourceBundle defaultBundle();
@@ -3,6 +3,8 @@ description = "Utilities for localisation"
 dependencies {
     api(project(":core"))
     api(project(":messaging"))
+    api(project(":threading"))
+    api(project(":debugging"))
     compileOnly(libs.spigot)
 }
 
@@ -0,0 +1,122 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.ResourceBundle;
+
+/**
+ * A resource bundle backed by a locale compiled by the {@link LocaleCompiler}.
+ * <p>
+ * The buffer is usually a memory mapped file. Keys are found via a perfect hash, so a lookup touches one bucket and
+ * one slot. Values are decoded when they are requested.
+ */
+final class CompiledBundle extends ResourceBundle {
+    private final ByteBuffer buffer;
+    private final int count;
+    private final int buckets;
+    private final int slots;
+    private final int seedStart;
+    private final int slotStart;
+
+    /**
+     * Creates a bundle from a compiled locale.
+     *
+     * @param buffer compiled locale
+     * @throws IllegalArgumentException if the buffer does not contain a compiled locale of the current format
+     */
+    CompiledBundle(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.limit() < LocaleCompiler.HEADER_SIZE || buffer.getInt(0) != LocaleCompiler.MAGIC
+            || buffer.getInt(4) != LocaleCompiler.FORMAT) {
+            throw new IllegalArgumentException("Not a compiled locale");
+        }
+        var header = 8 + LocaleCompiler.HASH_SIZE;
+        count = buffer.getInt(header);
+        buckets = buffer.getInt(header + 4);
+        slots = buffer.getInt(header + 8);
+        seedStart = LocaleCompiler.HEADER_SIZE;
+        slotStart = seedStart + buckets * 4;
+    }
+
+    /**
+     * The hash of the properties file this locale was compiled from.
+     *
+     * @return SHA-256 hash
+     */
+    byte[] sourceHash() {
+        var hash = new byte[LocaleCompiler.HASH_SIZE];
+        buffer.get(8, hash);
+        return hash;
+    }
+
+    int size() {
+        return count;
+    }
+
+    @Override
+    protected Object handleGetObject(@NotNull String key) {
+        var entry = find(key);
+        return entry < 0 ? null : value(entry);
+    }
+
+    @Override
+    public boolean containsKey(@NotNull String key) {
+        return find(key) >= 0 || (parent != null && parent.containsKey(key));
+    }
+
+    @NotNull
+    @Override
+    public Enumeration<String> getKeys() {
+        var keys = new String[count];
+        var index = 0;
+        for (var slot = 0; slot < slots; slot++) {
+            var entry = buffer.getInt(slotStart + slot * 4);
+            if (entry >= 0) keys[index++] = key(entry);
+        }
+        return Collections.enumeration(Arrays.asList(keys));
+    }
+
+    private int find(String key) {
+        if (count == 0) return -1;
+        var bucket = LocaleCompiler.bucket(key, buckets);
+        var seed = buffer.getInt(seedStart + bucket * 4);
+        var entry = buffer.getInt(slotStart + LocaleCompiler.slot(key, seed, slots) * 4);
+        return entry >= 0 && keyEquals(entry, key) ? entry : -1;
+    }
+
+    private boolean keyEquals(int entry, String key) {
+        var length = buffer.getInt(entry);
+        if (length != key.length()) return false;
+        for (var i = 0; i < length; i++) {
+            if (buffer.getChar(entry + 4 + i * 2) != key.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private String key(int entry) {
+        var length = buffer.getInt(entry);
+        var chars = new char[length];
+        for (var i = 0; i < length; i++) {
+            chars[i] = buffer.getChar(entry + 4 + i * 2);
+        }
+        return new String(chars);
+    }
+
+    private String value(int entry) {
+        var valueStart = entry + 4 + buffer.getInt(entry) * 2;
+        var bytes = new byte[buffer.getInt(valueStart)];
+        buffer.get(valueStart + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
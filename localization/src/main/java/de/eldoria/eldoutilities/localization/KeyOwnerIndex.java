@@ -0,0 +1,95 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the child localizer, which provides a key.
+ * <p>
+ * A key is owned by the first registered child, which contains it. Children of children are included, as a
+ * {@link Localizer} contains all keys of its own children. The index is updated per child, so registering or reloading
+ * a child only touches the keys of this child.
+ * <p>
+ * The index is not thread safe and is guarded by the lock of the owning localizer.
+ */
+final class KeyOwnerIndex {
+    private final List<ILocalizer> children = new ArrayList<>();
+    private final Map<ILocalizer, Set<String>> childKeys = new HashMap<>();
+    private final Map<String, ILocalizer> owners = new HashMap<>();
+
+    /**
+     * Registers a child. Keys which are already owned by another child stay with this child.
+     *
+     * @param child child localizer
+     * @return keys whose owner changed
+     */
+    Set<String> register(ILocalizer child) {
+        children.add(child);
+        return update(child);
+    }
+
+    /**
+     * Updates the keys of a child after its messages changed.
+     *
+     * @param child child localizer
+     * @return keys of the child before and after the change
+     */
+    Set<String> update(ILocalizer child) {
+        var position = children.indexOf(child);
+        if (position < 0) return Collections.emptySet();
+        var previous = childKeys.getOrDefault(child, Collections.emptySet());
+        var current = LocaleTable.keys(child);
+        childKeys.put(child, current);
+
+        for (var key : previous) {
+            if (current.contains(key) || owners.get(key) != child) continue;
+            owners.remove(key);
+            for (var i = position + 1; i < children.size(); i++) {
+                var next = children.get(i);
+                if (childKeys.getOrDefault(next, Collections.emptySet()).contains(key)) {
+                    owners.put(key, next);
+                    break;
+                }
+            }
+        }
+        for (var key : current) {
+            var owner = owners.get(key);
+            if (owner == null || children.indexOf(owner) > position) owners.put(key, child);
+        }
+
+        // the values of unchanged keys might have changed as well
+        Set<String> changed = new HashSet<>(previous);
+        changed.addAll(current);
+        return changed;
+    }
+
+    /**
+     * The child which provides a key.
+     *
+     * @param key key
+     * @return owner or null if no child contains the key
+     */
+    ILocalizer owner(String key) {
+        return owners.get(key);
+    }
+
+    /**
+     * All keys provided by children.
+     *
+     * @return keys
+     */
+    Set<String> keys() {
+        return Collections.unmodifiableSet(owners.keySet());
+    }
+}
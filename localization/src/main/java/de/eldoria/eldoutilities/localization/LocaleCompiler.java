@@ -0,0 +1,268 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+
+/**
+ * Compiles locale properties files into a binary format, which can be loaded without parsing.
+ * <p>
+ * The format contains a pool of all keys and values and a perfect hash index of the keys.
+ * The index is built with hash and displace: every bucket of keys receives a seed, which maps all keys of the bucket
+ * to free slots.
+ * <p>
+ * Locales in the resources of a plugin can be compiled at build time by running this class. Compiled resources are
+ * used as reference locales instead of the properties files:
+ * <pre>{@code
+ * val compileLocales by tasks.registering(JavaExec::class) {
+ *     classpath = sourceSets.main.get().runtimeClasspath
+ *     mainClass.set("de.eldoria.eldoutilities.localization.LocaleCompiler")
+ *     args(file("src/main/resources"), layout.buildDirectory.dir("resources/main").get().asFile)
+ * }
+ * }</pre>
+ * The locale files in the data folder are compiled at runtime into a cache, which is memory mapped on the next start.
+ * A cached locale is only used while its properties file is unchanged, so edits of users always take effect.
+ *
+ * @since 2.2.0
+ */
+public final class LocaleCompiler {
+    static final int MAGIC = 0x454C4F43;
+    static final int FORMAT = 1;
+    static final int HASH_SIZE = 32;
+    static final int HEADER_SIZE = 8 + HASH_SIZE + 12;
+    static final String EXTENSION = ".lcb";
+    private static final int MAX_SEED = 1 << 16;
+
+    private LocaleCompiler() {
+        throw new UnsupportedOperationException("This is a utility class.");
+    }
+
+    /**
+     * Compiles all properties files of a directory.
+     *
+     * @param args input directory and output directory
+     * @throws IOException if a file could not be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: LocaleCompiler <input directory> <output directory>");
+            System.exit(1);
+        }
+        var input = Path.of(args[0]);
+        var output = Path.of(args[1]);
+        Files.createDirectories(output);
+        try (var files = Files.list(input)) {
+            for (var file : files.filter(path -> path.getFileName().toString().endsWith(".properties")).toList()) {
+                var target = output.resolve(compiledName(file.getFileName().toString()));
+                compile(file, target);
+                System.out.println("Compiled " + file.getFileName() + " to " + target.getFileName());
+            }
+        }
+    }
+
+    /**
+     * Compiles a properties file.
+     *
+     * @param properties properties file
+     * @param target     file the compiled locale is written to
+     * @throws IOException if the file could not be read or written
+     */
+    public static void compile(Path properties, Path target) throws IOException {
+        var source = Files.readAllBytes(properties);
+        write(target, compile(entries(new PropertyResourceBundle(new ByteArrayInputStream(source))), digest(source)));
+    }
+
+    /**
+     * Compiles entries into the binary format.
+     *
+     * @param entries    entries of the locale
+     * @param sourceHash SHA-256 hash of the source file
+     * @return compiled locale
+     */
+    public static byte[] compile(Map<String, String> entries, byte[] sourceHash) {
+        var keys = new ArrayList<>(entries.keySet());
+        var count = keys.size();
+        var buckets = Math.max(1, (count + 3) / 4);
+        var slots = Math.max(1, count + count / 4);
+        int[] seeds;
+        int[] slotKeys;
+        while (true) {
+            seeds = new int[buckets];
+            slotKeys = new int[slots];
+            if (place(keys, seeds, slotKeys)) break;
+            slots += Math.max(1, slots / 4);
+        }
+
+        var pool = new ByteArrayOutputStream();
+        var poolStart = HEADER_SIZE + buckets * 4 + slots * 4;
+        var offsets = new int[count];
+        try (var out = new DataOutputStream(pool)) {
+            for (var i = 0; i < count; i++) {
+                offsets[i] = poolStart + out.size();
+                var key = keys.get(i);
+                out.writeInt(key.length());
+                out.writeChars(key);
+                var value = entries.get(key).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(value.length);
+                out.write(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var buffer = ByteBuffer.allocate(poolStart + pool.size());
+        buffer.putInt(MAGIC).putInt(FORMAT).put(Arrays.copyOf(sourceHash, HASH_SIZE));
+        buffer.putInt(count).putInt(buckets).putInt(slots);
+        for (var seed : seeds) buffer.putInt(seed);
+        for (var key : slotKeys) buffer.putInt(key < 0 ? -1 : offsets[key]);
+        buffer.put(pool.toByteArray());
+        return buffer.array();
+    }
+
+    /**
+     * Loads a locale file from the cache or compiles it into the cache.
+     *
+     * @param properties locale file
+     * @param cache      directory of the compiled locales
+     * @return bundle of the locale file
+     * @throws IOException if the locale file could not be read
+     */
+    static ResourceBundle load(Path properties, Path cache) throws IOException {
+        var source = Files.readAllBytes(properties);
+        var hash = digest(source);
+        var compiled = cache.resolve(compiledName(properties.getFileName().toString()));
+        if (Files.exists(compiled)) {
+            try (var channel = FileChannel.open(compiled, StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                var bundle = new CompiledBundle(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                if (Arrays.equals(bundle.sourceHash(), hash)) return bundle;
+            } catch (IllegalArgumentException e) {
+                // compiled with another format
+            }
+        }
+        var bundle = new PropertyResourceBundle(new ByteArrayInputStream(source));
+        try {
+            Files.createDirectories(cache);
+            write(compiled, compile(entries(bundle), hash));
+        } catch (IOException e) {
+            // the cache is only used to speed up the next start
+        }
+        return bundle;
+    }
+
+    /**
+     * The name of the compiled file of a properties file.
+     *
+     * @param properties name of the properties file
+     * @return name of the compiled file
+     */
+    public static String compiledName(String properties) {
+        return properties.replaceFirst("\\.properties$", "") + EXTENSION;
+    }
+
+    static int bucket(String key, int buckets) {
+        return Math.floorMod(hash(key, 0), buckets);
+    }
+
+    static int slot(String key, int seed, int slots) {
+        return Math.floorMod(hash(key, seed), slots);
+    }
+
+    static byte[] digest(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static boolean place(List<String> keys, int[] seeds, int[] slotKeys) {
+        Arrays.fill(slotKeys, -1);
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (var i = 0; i < seeds.length; i++) buckets.add(new ArrayList<>());
+        for (var i = 0; i < keys.size(); i++) buckets.get(bucket(keys.get(i), seeds.length)).add(i);
+        var order = new ArrayList<Integer>();
+        for (var i = 0; i < seeds.length; i++) order.add(i);
+        // large buckets are placed first, while most slots are free
+        order.sort(Comparator.comparingInt((Integer bucket) -> buckets.get(bucket).size()).reversed());
+
+        var targets = new int[keys.size()];
+        for (var bucket : order) {
+            var members = buckets.get(bucket);
+            if (members.isEmpty()) continue;
+            var placed = false;
+            for (var seed = 1; seed < MAX_SEED && !placed; seed++) {
+                placed = true;
+                for (var i = 0; i < members.size() && placed; i++) {
+                    var slot = slot(keys.get(members.get(i)), seed, slotKeys.length);
+                    if (slotKeys[slot] >= 0) placed = false;
+                    for (var j = 0; j < i && placed; j++) {
+                        if (targets[j] == slot) placed = false;
+                    }
+                    targets[i] = slot;
+                }
+                if (placed) {
+                    seeds[bucket] = seed;
+                    for (var i = 0; i < members.size(); i++) slotKeys[targets[i]] = members.get(i);
+                }
+            }
+            if (!placed) return false;
+        }
+        return true;
+    }
+
+    private static int hash(String key, int seed) {
+        var hash = seed * 0x9E3779B9 ^ 0x811C9DC5;
+        for (var i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ hash >>> 16;
+    }
+
+    private static Map<String, String> entries(ResourceBundle bundle) {
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (var key : bundle.keySet()) entries.put(key, bundle.getString(key));
+        return entries;
+    }
+
+    private static void write(Path target, byte[] content) throws IOException {
+        var temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the content hashes of the locale files after the last update.
+ * <p>
+ * A file does not need to be checked for missing keys, if its hash, the plugin version and the reference keys did not
+ * change since the last update. The index is stored next to the locale files.
+ */
+final class LocaleFileIndex {
+    static final String FILE_NAME = ".locale-index";
+    private static final String VERSION = "version";
+    private static final String KEYS = "keys";
+    private final Path path;
+    private final Properties previous;
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+    private final String version;
+    private final String keys;
+    private final boolean valid;
+
+    private LocaleFileIndex(Path path, Properties previous, String version, String keys) {
+        this.path = path;
+        this.previous = previous;
+        this.version = version;
+        this.keys = keys;
+        valid = version.equals(previous.getProperty(VERSION)) && keys.equals(previous.getProperty(KEYS));
+    }
+
+    /**
+     * Load the index of a locale directory.
+     *
+     * @param directory     locale directory
+     * @param version       version of the plugin
+     * @param referenceKeys keys every locale file has to contain
+     * @return loaded index or an empty index if no index exists or it could not be read
+     */
+    static LocaleFileIndex load(Path directory, String version, Collection<String> referenceKeys) {
+        var path = directory.resolve(FILE_NAME);
+        var properties = new Properties();
+        if (Files.exists(path)) {
+            try (var reader = new StringReader(Files.readString(path, StandardCharsets.UTF_8))) {
+                properties.load(reader);
+            } catch (IOException | IllegalArgumentException e) {
+                // the files are checked again and the index is rewritten
+                properties.clear();
+            }
+        }
+        var sortedKeys = String.join("\n", referenceKeys.stream().sorted().toList());
+        return new LocaleFileIndex(path, properties, String.valueOf(version), hash(sortedKeys.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks whether a file is unchanged since the last update.
+     *
+     * @param file name of the file
+     * @param hash current hash of the file
+     * @return true if the file does not need to be checked
+     */
+    boolean isUnchanged(String file, String hash) {
+        return valid && hash.equals(previous.getProperty(file));
+    }
+
+    /**
+     * Record the hash of a file after it was checked or updated.
+     *
+     * @param file name of the file
+     * @param hash hash of the file
+     */
+    void record(String file, String hash) {
+        hashes.put(file, hash);
+    }
+
+    /**
+     * Writes the recorded hashes. Files which were not recorded are checked again on the next run.
+     *
+     * @throws IOException if the index could not be written
+     */
+    void save() throws IOException {
+        var properties = new Properties();
+        properties.putAll(hashes);
+        properties.setProperty(VERSION, version);
+        properties.setProperty(KEYS, keys);
+        var writer = new StringWriter();
+        properties.store(writer, "Hashes of the locale files after the last update. Delete this file to check all files again.");
+        Files.writeString(path, writer.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The hash of a file content.
+     *
+     * @param content content
+     * @return hex encoded SHA-256 hash
+     */
+    static String hash(byte[] content) {
+        return HexFormat.of().formatHex(LocaleCompiler.digest(content));
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * Immutable table of all messages of a {@link Localizer}.
+ * <p>
+ * Every key is mapped to an array with one value per locale. The arrays are indexed by the locale index,
+ * which stays the same for a locale as long as the localizer exists.
+ * Fallbacks are applied when the table is built, so a lookup is a single hash lookup.
+ * Locales which are known, but not loaded, have no values and resolve the value of the fallback locale.
+ * <p>
+ * A value is resolved in the following order:
+ * <ol>
+ *     <li>The bundle of the locale</li>
+ *     <li>The bundle of the fallback locale</li>
+ *     <li>The child localizer, which owns the key in the {@link KeyOwnerIndex}</li>
+ *     <li>The runtime locale codes</li>
+ * </ol>
+ * When a child changes, only the keys of this child are resolved again.
+ */
+final class LocaleTable {
+    static final LocaleTable EMPTY = new LocaleTable(new String[0], new boolean[0], Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptyMap(), -1);
+    private final String[] locales;
+    private final boolean[] loaded;
+    private final Map<String, Integer> indices;
+    private final Map<String, ResourceBundle> bundles;
+    private final Map<String, String[]> entries;
+    private final int fallback;
+
+    private LocaleTable(String[] locales, boolean[] loaded, Map<String, Integer> indices,
+                        Map<String, ResourceBundle> bundles, Map<String, String[]> entries, int fallback) {
+        this.locales = locales;
+        this.loaded = loaded;
+        this.indices = indices;
+        this.bundles = bundles;
+        this.entries = entries;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Build a new table.
+     *
+     * @param locales  locales in the order of their index
+     * @param fallback fallback locale. Has to be contained in the locales.
+     * @param bundles  loaded bundles of the locales. Locales without a bundle are not loaded.
+     * @param owners   index of the child localizers
+     * @param runtime  runtime locale codes
+     * @return new table
+     */
+    static LocaleTable build(List<String> locales, String fallback, Map<String, ResourceBundle> bundles,
+                             KeyOwnerIndex owners, Map<String, String> runtime) {
+        var names = locales.toArray(String[]::new);
+        var size = names.length;
+        Map<String, Integer> indices = new HashMap<>();
+        var loaded = new boolean[size];
+        for (var i = 0; i < size; i++) {
+            indices.put(names[i], i);
+            loaded[i] = bundles.containsKey(names[i]);
+        }
+        int fallbackIndex = indices.getOrDefault(fallback, -1);
+        if (fallbackIndex >= 0) loaded[fallbackIndex] = true;
+
+        Set<String> keys = new HashSet<>(owners.keys());
+        keys.addAll(runtime.keySet());
+        for (var bundle : bundles.values()) keys.addAll(bundle.keySet());
+
+        var table = new LocaleTable(names, loaded, indices, Map.copyOf(bundles), new HashMap<>(), fallbackIndex);
+        for (var key : keys) table.entries.put(key, table.values(key, owners, runtime));
+        return table;
+    }
+
+    /**
+     * Creates a copy of this table with new values for some keys. The values of other keys are shared with this table.
+     *
+     * @param keys    keys to resolve again
+     * @param owners  index of the child localizers
+     * @param runtime runtime locale codes
+     * @return new table
+     */
+    LocaleTable update(Set<String> keys, KeyOwnerIndex owners, Map<String, String> runtime) {
+        var table = new LocaleTable(locales, loaded, indices, bundles, new HashMap<>(entries), fallback);
+        for (var key : keys) {
+            var values = table.values(key, owners, runtime);
+            if (values == null) {
+                table.entries.remove(key);
+            } else {
+                table.entries.put(key, values);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Resolves the values of a key for all locales.
+     *
+     * @param key     key
+     * @param owners  index of the child localizers
+     * @param runtime runtime locale codes
+     * @return values or null if no source contains the key
+     */
+    private String[] values(String key, KeyOwnerIndex owners, Map<String, String> runtime) {
+        var size = locales.length;
+        var values = new String[size];
+        var found = false;
+        for (var i = 0; i < size; i++) {
+            var bundle = bundles.get(locales[i]);
+            if (bundle != null && bundle.containsKey(key)) {
+                values[i] = bundle.getString(key);
+                found = true;
+            }
+        }
+        var owner = owners.owner(key);
+        var runtimeValue = runtime.get(key);
+        if (!found && owner == null && runtimeValue == null) return null;
+
+        var fallbackValue = fallback < 0 ? null : values[fallback];
+        for (var i = 0; i < size; i++) {
+            if (values[i] != null || !loaded[i]) continue;
+            var value = fallbackValue;
+            if (value == null && owner != null) value = owner.getValue(key, locales[i]);
+            if (value == null) value = runtimeValue;
+            values[i] = value;
+        }
+        return values;
+    }
+
+    /**
+     * Get all keys a localizer can resolve.
+     *
+     * @param localizer localizer
+     * @return keys of the localizer
+     */
+    static Set<String> keys(ILocalizer localizer) {
+        if (localizer instanceof Localizer child) {
+            return child.table().keys();
+        }
+        Set<String> keys = new HashSet<>();
+        var bundle = localizer.defaultBundle();
+        if (bundle != null) keys.addAll(bundle.keySet());
+        for (var locale : localizer.includedLocales()) {
+            bundle = localizer.localeBundle(locale);
+            if (bundle != null) keys.addAll(bundle.keySet());
+        }
+        return keys;
+    }
+
+    /**
+     * The index of a locale.
+     *
+     * @param locale locale
+     * @return index of the locale or -1 if the locale is not part of the table
+     */
+    int index(String locale) {
+        return locale == null ? -1 : indices.getOrDefault(locale, -1);
+    }
+
+    /**
+     * The index of the fallback locale.
+     *
+     * @return index of the fallback locale
+     */
+    int fallbackIndex() {
+        return fallback;
+    }
+
+    /**
+     * Get a value.
+     *
+     * @param key    key
+     * @param locale index of the locale
+     * @return value or null if the key is unknown
+     */
+    String get(String key, int locale) {
+        if (locale < 0) return null;
+        var values = entries.get(key);
+        if (values == null) return null;
+        var value = values[locale];
+        return value != null || fallback < 0 ? value : values[fallback];
+    }
+
+    /**
+     * Checks whether the values of a locale are part of the table.
+     *
+     * @param locale index of the locale
+     * @return true if the locale is loaded
+     */
+    boolean isLoaded(int locale) {
+        return loaded[locale];
+    }
+
+    int size() {
+        return locales.length;
+    }
+
+    Set<String> keys() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    String locale(int index) {
+        return locales[index];
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * Watches the locale directory and reloads changed locale files.
+ * <p>
+ * Changes are collected until no file changed for the debounce time. Afterward, the changed locales are reloaded on the
+ * watcher thread. The watcher is tracked by the {@link TaskScope} of the plugin and stops when the plugin is disabled.
+ */
+final class LocaleWatcher implements AutoCloseable {
+    private static final long POLL_MILLIS = 250;
+    private final Plugin plugin;
+    private final Path directory;
+    private final Pattern localeFile;
+    private final long debounce;
+    private final Consumer<Set<String>> reload;
+    private final ExecutorService executor;
+    private final WatchService watchService;
+
+    /**
+     * Creates and starts a new watcher.
+     *
+     * @param plugin        plugin which owns the localizer
+     * @param directory     locale directory
+     * @param localesPrefix prefix of the locale files
+     * @param debounce      time without changes before the changed files are reloaded
+     * @param reload        reloads the changed locales
+     * @throws IOException if the directory can not be watched
+     */
+    LocaleWatcher(Plugin plugin, Path directory, String localesPrefix, Duration debounce, Consumer<Set<String>> reload) throws IOException {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.localeFile = Pattern.compile(Pattern.quote(localesPrefix) + "_([a-zA-Z]{2}(_[a-zA-Z]{2})?)\\.properties");
+        this.debounce = debounce.toNanos();
+        this.reload = reload;
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "Locale Watcher - " + plugin.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        TaskScope.of(plugin).track("locale watcher", executor);
+        executor.execute(this::watch);
+    }
+
+    private void watch() {
+        Set<String> changed = new HashSet<>();
+        var lastChange = 0L;
+        try (watchService) {
+            // the scope shuts the executor down when the plugin is disabled
+            while (!executor.isShutdown()) {
+                var key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (var event : key.pollEvents()) {
+                        if (!(event.context() instanceof Path path)) continue;
+                        var matcher = localeFile.matcher(path.getFileName().toString());
+                        if (!matcher.matches()) continue;
+                        changed.add(matcher.group(1));
+                        lastChange = System.nanoTime();
+                    }
+                    key.reset();
+                }
+                if (!changed.isEmpty() && System.nanoTime() - lastChange >= debounce) {
+                    var locales = Set.copyOf(changed);
+                    changed.clear();
+                    try {
+                        reload.accept(locales);
+                    } catch (RuntimeException e) {
+                        plugin.getLogger().log(Level.WARNING, "Could not reload locales " + locales, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Stopped watching " + directory, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
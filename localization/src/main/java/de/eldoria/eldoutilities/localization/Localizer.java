@@ -6,6 +6,9 @@
 
 package de.eldoria.eldoutilities.localization;
 
+import de.eldoria.eldoutilities.threading.futures.PluginExecutors;
+import de.eldoria.eldoutilities.threading.scheduler.TaskHandle;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
@@ -14,12 +17,15 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
@@ -27,11 +33,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.MissingResourceException;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
@@ -49,22 +58,41 @@ import static de.eldoria.eldoutilities.localization.ILocalizer.isLocaleCode;
  * You can change the currently used locale every time via {@link #setLocale(String)}.
  * <p>
  * The localizer also allows to use locales which are not included in the resources folder.
+ * <p>
+ * Messages are resolved from a {@link LocaleTable}, which contains the values of all locales and children with fallbacks
+ * already applied. The table is rebuilt when the fallback locale, the runtime locale codes or the loaded locales change.
+ * When a child is registered or changes, only the keys of this child are updated.
  *
  * @since 1.0.0
  */
 @SuppressWarnings("unused")
 public class Localizer implements ILocalizer {
+    private static final Duration SWEEP_PERIOD = Duration.ofMinutes(1);
+    private static final String COMPILED_DIRECTORY = ".compiled";
 
-    private String defaultLanguage;
+    private volatile String defaultLanguage;
     private final Plugin plugin;
     private final String localesPath;
     private final String localesPrefix;
     private final Set<String> includedLocales;
     private final Pattern localePattern = Pattern.compile("_(([a-zA-Z]{2})(_[a-zA-Z]{2})?)\\.properties");
     private final Map<String, String> runtimeLocaleCodes;
-    private final Map<String, ResourceBundle> languages = new HashMap<>();
-    private final Function<Player, String> userLocale;
-    private final List<ILocalizer> children = new ArrayList<>();
+    private final Map<String, ResourceBundle> languages = new ConcurrentHashMap<>();
+    private final PlayerLocaleCache playerLocales;
+    private final MissingKeyTracker missingKeys;
+    private final KeyOwnerIndex owners = new KeyOwnerIndex();
+    private final List<Localizer> parents = new CopyOnWriteArrayList<>();
+    private final List<String> localeIndices = new CopyOnWriteArrayList<>();
+    private final Set<String> unknownLanguages = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+    private final int idleSweeps;
+    private final AtomicReference<TaskHandle> sweeper = new AtomicReference<>();
+    private volatile LocaleTable table = LocaleTable.EMPTY;
+    private volatile int[] lastUsed = new int[0];
+    private volatile int sweep;
+    private LocaleWatcher watcher;
+    private ResourceBundle defaultResource;
     private boolean checked;
 
     /**
@@ -76,33 +104,38 @@ public class Localizer implements ILocalizer {
      * default locale file will be used.
      * <p>
      * After an update check and a update if needed it will load the provided language or the fallback language if the
-     * provided language does not exist.
+     * provided language does not exist. Other locales are loaded when they are requested the first time and unloaded
+     * when they were not used for the idle time.
      *
      * @param plugin          instance of plugin
      * @param localesPath     path of the locales directory
      * @param localesPrefix   prefix of the locale files
      * @param fallbackLocale  fallbackLocale
      * @param includedLocales internal provided locales
+     * @param localeIdleTime  time after which unused locales are unloaded
      */
     Localizer(Plugin plugin, String localesPath,
-              String localesPrefix, String fallbackLocale, Function<Player, String> userLocale, Set<String> includedLocales, Map<String, String> runtimeLocaleCodes) {
+              String localesPrefix, String fallbackLocale, Function<Player, String> userLocale, Set<String> includedLocales,
+              Map<String, String> runtimeLocaleCodes, Duration localeIdleTime) {
         this.plugin = plugin;
         this.localesPath = localesPath;
         this.localesPrefix = localesPrefix;
-        this.userLocale = userLocale;
+        this.playerLocales = new PlayerLocaleCache(plugin, userLocale, this::localeIndex);
+        this.missingKeys = new MissingKeyTracker(plugin);
         this.includedLocales = includedLocales;
         defaultLanguage = fallbackLocale;
         this.runtimeLocaleCodes = runtimeLocaleCodes;
+        this.idleSweeps = (int) Math.max(1, (localeIdleTime.toMillis() + SWEEP_PERIOD.toMillis() - 1) / SWEEP_PERIOD.toMillis());
         createDefaults();
+        defaultResource = loadDefaultResource();
         bootstrap();
         loadLanguage(fallbackLocale);
         if (!languages.containsKey(fallbackLocale)) {
             plugin.getLogger().log(Level.SEVERE, "Could not load default locale");
         }
         LOCALIZER.put(plugin.getClass(), this);
-        for (String locale : includedLocales) {
-            loadLanguage(locale);
-        }
+        localeIndices.addAll(includedLocales);
+        rebuild();
     }
 
     /**
@@ -223,20 +256,21 @@ public class Localizer implements ILocalizer {
 
     public void setDefaultLocale(String language) {
         bootstrap();
+        // the fallback language is pinned and has to be loaded before it is used.
+        if (!languages.containsKey(language) && Files.exists(getLocaleFile(language))) loadLanguage(language);
         if (!languages.containsKey(language)) {
             plugin.getLogger().log(Level.WARNING, "Language %s does not exist".formatted(language));
             return;
         }
         this.defaultLanguage = language;
+        rebuild();
     }
 
 
     @Override
     public String getMessage(String key, @Nullable CommandSender sender) {
-        if (sender instanceof Player player) {
-            return getMessage(key, userLocale.apply(player));
-        }
-        return getMessage(key, defaultLanguage);
+        var result = getValue(key, sender);
+        return result != null ? result : orMissing(key, getLocale(sender));
     }
 
     @Override
@@ -246,22 +280,54 @@ public class Localizer implements ILocalizer {
 
     @Override
     public String getMessage(String key, String language) {
-        var result = getValue(key);
+        var result = getValue(key, language);
+        return result != null ? result : orMissing(key, language);
+    }
+
+    /**
+     * Records a missing key. Only the first request of a key in a locale is logged.
+     *
+     * @param key      key
+     * @param language language of the request
+     * @return the key if it is a localization code, otherwise null
+     */
+    private String orMissing(String key, String language) {
+        if (!LOCALIZATION_CODE.matcher(key).matches()) return null;
+        var entry = missingKeys.record(key, language);
+        if (entry != null) {
+            plugin.getLogger().warning("Key %s is missing in locale %s and the fallback file. Requested by %s. Further requests are reported periodically."
+                    .formatted(key, language, entry.caller()));
+        }
+        return key;
+    }
 
-        if (result == null && LOCALIZATION_CODE.matcher(key).matches()) {
-            plugin.getLogger().warning("Key " + key + " is missing in fallback file.");
-            plugin.getLogger().log(Level.WARNING, "Message from", new RuntimeException());
-            result = key;
+    @Override
+    public String getLocale(@Nullable CommandSender sender) {
+        if (sender instanceof Player player) {
+            var current = table;
+            var index = playerLocales.index(player);
+            if (index >= 0 && index < current.size()) return current.locale(index);
         }
+        return defaultLanguage;
+    }
 
-        return result;
+    /**
+     * The keys which were requested, but are missing in the locale files.
+     * <p>
+     * Return the tracker in {@link de.eldoria.eldoutilities.debug.DebugDataProvider#getDebugProviders()} of the
+     * plugin to include the missing keys in the debug data.
+     *
+     * @return tracker of the missing keys
+     */
+    public MissingKeyTracker missingKeys() {
+        return missingKeys;
     }
 
     @Override
     @Nullable
     public String getValue(String key, CommandSender sender) {
         if (sender instanceof Player player) {
-            return getValue(key, userLocale.apply(player));
+            return table.get(key, playerLocales.index(player));
         }
         return getValue(key, defaultLanguage);
     }
@@ -269,40 +335,111 @@ public class Localizer implements ILocalizer {
     @Override
     @Nullable
     public String getValue(String key, String language) {
-        String result = null;
-        if (localeBundle(language).containsKey(key)) {
-            try {
-                result = localeBundle(language).getString(key);
-            } catch (MissingResourceException e) {
-                // ignore
-            }
+        return table.get(key, localeIndex(language));
+    }
+
+    /**
+     * Get the index of a language in the message table.
+     * <p>
+     * Languages which are not loaded are loaded asynchronously. The fallback language is used until they are loaded.
+     *
+     * @param language language
+     * @return index of the language or of the fallback language if the language is unknown
+     */
+    private int localeIndex(String language) {
+        var current = table;
+        var index = current.index(language);
+        if (index < 0 || !current.isLoaded(index)) {
+            requestLoad(language);
+            if (index < 0) return current.fallbackIndex();
         }
-        if (result == null && localeBundle(defaultLanguage).containsKey(key)) {
+        var used = lastUsed;
+        // racy writes are fine, as the value is only compared against the sweep count
+        if (index < used.length && used[index] != sweep) used[index] = sweep;
+        return index;
+    }
+
+    /**
+     * Loads a language asynchronously if it is not loaded and not unknown.
+     *
+     * @param language language
+     */
+    private void requestLoad(String language) {
+        if (language == null || languages.containsKey(language) || unknownLanguages.contains(language)) return;
+        if (!loading.add(language)) return;
+        startSweeper();
+        PluginExecutors.of(plugin).execute(() -> {
             try {
-                result = localeBundle(defaultLanguage).getString(key);
-            } catch (MissingResourceException e) {
-                // ignore
+                var file = getLocaleFile(language);
+                if (!Files.exists(file)) {
+                    unknownLanguages.add(language);
+                    plugin.getLogger().severe("Language %s not found".formatted(language));
+                    return;
+                }
+                var bundle = getBundle(file);
+                synchronized (this) {
+                    if (!localeIndices.contains(language)) localeIndices.add(language);
+                    languages.put(language, bundle);
+                    rebuildTable();
+                }
+                changed();
+                plugin.getLogger().fine("Loaded language %s.".formatted(language));
+            } catch (IOException | IllegalArgumentException e) {
+                unknownLanguages.add(language);
+                plugin.getLogger().log(Level.WARNING, "Failed to load language %s.".formatted(language), e);
+            } finally {
+                loading.remove(language);
             }
-        }
+        });
+    }
+
+    private void startSweeper() {
+        // parents request locales of their children while they hold their monitor, so this must not lock
+        if (sweeper.get() != null || !plugin.isEnabled()) return;
+        var period = Math.max(1, SWEEP_PERIOD.toMillis() / 50);
+        var handle = TaskSchedulers.of(plugin).async().runTimer(this::evictIdle, period, period);
+        if (!sweeper.compareAndSet(null, handle)) handle.cancel();
+    }
 
-        if (result == null) {
-            for (var child : children) {
-                result = child.getValue(key, language);
-                if (result != null) break;
+    /**
+     * Unloads languages, which were not used for the idle time and are not used by online players.
+     * The fallback language is never unloaded.
+     * <p>
+     * Called by the sweeper once per sweep period.
+     */
+    void evictIdle() {
+        var current = ++sweep;
+        var active = playerLocales.activeLocales();
+        var used = lastUsed;
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            for (var language : languages.keySet()) {
+                if (language.equals(defaultLanguage)) continue;
+                var index = localeIndices.indexOf(language);
+                if (index < 0 || active.contains(language)) continue;
+                // the last use might have been right before the previous sweep
+                if (index < used.length && current - used[index] <= idleSweeps) continue;
+                languages.remove(language);
+                evicted.add(language);
             }
+            if (evicted.isEmpty()) return;
+            rebuildTable();
         }
-        return result;
+        changed();
+        plugin.getLogger().fine("Unloaded unused languages " + String.join(", ", evicted) + ".");
     }
 
     @Override
     public ResourceBundle localeBundle(String language) {
         ResourceBundle resourceBundle = languages.get(language);
         if (resourceBundle == null) {
-            plugin.getLogger().severe("Language %s not found".formatted(language));
-            if (language.equals(defaultLanguage)) {
-                throw new RuntimeException("Fallback language is not registered.");
+            if (!language.equals(defaultLanguage)) {
+                // the bundle of the fallback language is used until the language is loaded
+                requestLoad(language);
+                return localeBundle(defaultLanguage);
             }
-            return localeBundle(defaultLanguage);
+            plugin.getLogger().severe("Language %s not found".formatted(language));
+            throw new RuntimeException("Fallback language is not registered.");
         }
         return resourceBundle;
     }
@@ -312,6 +449,154 @@ public class Localizer implements ILocalizer {
         return localeBundle(defaultLanguage);
     }
 
+    /**
+     * The current message table.
+     *
+     * @return message table
+     */
+    LocaleTable table() {
+        return table;
+    }
+
+    /**
+     * Rebuilds the message table and swaps it with the current table. Parents update the keys of this localizer afterward.
+     */
+    void rebuild() {
+        synchronized (this) {
+            rebuildTable();
+        }
+        changed();
+    }
+
+    /**
+     * Rebuilds the message table. The caller has to hold the monitor of this localizer and call {@link #changed()}
+     * after releasing it, as parents lock themselves while they read the messages of their children.
+     */
+    private void rebuildTable() {
+        for (var language : languages.keySet()) {
+            if (!localeIndices.contains(language)) localeIndices.add(language);
+        }
+        if (!localeIndices.contains(defaultLanguage)) localeIndices.add(defaultLanguage);
+        if (lastUsed.length < localeIndices.size()) {
+            var used = Arrays.copyOf(lastUsed, localeIndices.size());
+            // new languages count as used in the current sweep
+            Arrays.fill(used, lastUsed.length, used.length, sweep);
+            lastUsed = used;
+        }
+        table = LocaleTable.build(localeIndices, defaultLanguage, languages, owners, runtimeLocaleCodes);
+        // players of unknown languages are cached with the index of the fallback language
+        playerLocales.tableChanged();
+    }
+
+    /**
+     * Updates the keys of a child in the message table.
+     *
+     * @param child child which was registered or whose messages changed
+     * @param added true if the child was registered
+     */
+    private void childChanged(ILocalizer child, boolean added) {
+        synchronized (this) {
+            var keys = added ? owners.register(child) : owners.update(child);
+            if (keys.isEmpty()) return;
+            table = table.update(keys, owners, runtimeLocaleCodes);
+        }
+        changed();
+    }
+
+    /**
+     * Notifies the listeners and parents after the message table changed. Must not be called while holding the monitor
+     * of this localizer.
+     */
+    private void changed() {
+        for (var listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Reload listener failed.", e);
+            }
+        }
+        for (var parent : parents) {
+            parent.childChanged(this, false);
+        }
+    }
+
+    /**
+     * Reloads all loaded locales from their files.
+     * <p>
+     * The files are parsed on the calling thread. The messages are replaced at once after all files were parsed.
+     */
+    public void reload() {
+        reload(Set.copyOf(languages.keySet()));
+    }
+
+    /**
+     * Reloads locales from their files. Locales which are not loaded are loaded on their next request.
+     *
+     * @param locales locales to reload
+     */
+    void reload(Set<String> locales) {
+        // the file of a locale which was not found might exist now
+        unknownLanguages.removeAll(locales);
+        Map<String, ResourceBundle> bundles = new HashMap<>();
+        for (var locale : locales) {
+            if (!languages.containsKey(locale)) continue;
+            try {
+                bundles.put(locale, getBundle(getLocaleFile(locale)));
+            } catch (IOException | IllegalArgumentException e) {
+                // the old messages are kept until the file is valid again
+                plugin.getLogger().log(Level.WARNING, "Could not reload locale %s.".formatted(locale), e);
+            }
+        }
+        if (bundles.isEmpty()) return;
+        synchronized (this) {
+            languages.putAll(bundles);
+            rebuildTable();
+        }
+        changed();
+        // missing keys might have been added
+        missingKeys.clear();
+        plugin.getLogger().info("Reloaded locales " + String.join(", ", bundles.keySet()) + ".");
+    }
+
+    /**
+     * Watches the locale directory and reloads locale files when they change.
+     * <p>
+     * Changes are reloaded asynchronously once no file changed for the debounce time. The watcher stops when the
+     * {@link de.eldoria.eldoutilities.threading.TaskScope} of the plugin is closed or {@link #stopWatching()} is called.
+     *
+     * @param debounce time without changes before the files are reloaded
+     */
+    public synchronized void watch(Duration debounce) {
+        if (watcher != null) return;
+        try {
+            watcher = new LocaleWatcher(plugin, getLocalePath(), localesPrefix, debounce, this::reload);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not watch locale directory.", e);
+        }
+    }
+
+    /**
+     * Stops watching the locale directory.
+     */
+    public synchronized void stopWatching() {
+        if (watcher == null) return;
+        watcher.close();
+        watcher = null;
+    }
+
+    /**
+     * Registers a listener, which is called whenever the messages of this localizer change.
+     * This happens when locales are reloaded, children are registered or locale codes are added.
+     * <p>
+     * Listeners are called on the thread which changed the messages.
+     *
+     * @param listener listener
+     */
+    @Override
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
     private void loadLanguage(String language) {
         try {
             languages.put(language, getBundle(getLocaleFile(language)));
@@ -355,29 +640,63 @@ public class Localizer implements ILocalizer {
 
     private boolean isLocaleFile(Path path) {
         if (path.toFile().isDirectory()) return false;
+        if (path.getFileName().toString().equals(LocaleFileIndex.FILE_NAME)) return false;
         if (path.toFile().getName().matches(localesPrefix + "_[a-zA-Z]{2}(_[a-zA-Z]{2})?\\.properties")) return true;
         plugin.getLogger().info(path + " is not a valid message file. Skipped.");
         return false;
     }
 
+    /**
+     * The default locale file of the plugin resources. The file is read once when the localizer is created.
+     *
+     * @return default locale bundle
+     * @throws IOException if the file could not be read
+     */
     private ResourceBundle getDefaultLanguage() throws IOException {
-        try (var input = plugin.getResource(localesPrefix + ".properties")) {
-            if (input == null) {
-                plugin.getLogger().severe("Could not load locale file " + localesPrefix + ".properties. Does it exist?");
-                return new DummyResourceBundle();
-            }
-            //TODO: Lazy getter
-            return new PropertyResourceBundle(input);
+        if (defaultResource == null) {
+            throw new IOException("Could not read locale file " + localesPrefix + ".properties.");
+        }
+        return defaultResource;
+    }
+
+    @Nullable
+    private ResourceBundle loadDefaultResource() {
+        try {
+            var bundle = getResourceBundle(localesPrefix + ".properties");
+            if (bundle != null) return bundle;
+            plugin.getLogger().severe("Could not load locale file " + localesPrefix + ".properties. Does it exist?");
+            return new DummyResourceBundle();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not read locale file " + localesPrefix + ".properties.", e);
+            return null;
         }
     }
 
     private ResourceBundle getBundle(String locale) throws IOException {
-        try (var input = plugin.getResource(getLocaleFileName(locale))) {
-            if (input == null) {
-                plugin.getLogger().severe("Could not load locale file " + getLocaleFileName(locale) + ".properties. Does it exist?");
-                return getDefaultLanguage();
+        var bundle = getResourceBundle(getLocaleFileName(locale));
+        if (bundle == null) {
+            plugin.getLogger().severe("Could not load locale file " + getLocaleFileName(locale) + ".properties. Does it exist?");
+            return getDefaultLanguage();
+        }
+        return bundle;
+    }
+
+    /**
+     * Load a bundle from the plugin resources. A locale compiled by the {@link LocaleCompiler} is preferred.
+     *
+     * @param fileName name of the properties file
+     * @return bundle or null if the resource does not exist
+     * @throws IOException if the resource could not be read
+     */
+    @Nullable
+    private ResourceBundle getResourceBundle(String fileName) throws IOException {
+        try (var compiled = plugin.getResource(LocaleCompiler.compiledName(fileName))) {
+            if (compiled != null) {
+                return new CompiledBundle(ByteBuffer.wrap(compiled.readAllBytes()));
             }
-            return new PropertyResourceBundle(input);
+        }
+        try (var input = plugin.getResource(fileName)) {
+            return input == null ? null : new PropertyResourceBundle(input);
         }
     }
 
@@ -389,14 +708,12 @@ public class Localizer implements ILocalizer {
     }
 
     private ResourceBundle getBundle(Path locale) throws IOException {
-        try (var input = Files.newInputStream(locale)) {
-            return new PropertyResourceBundle(input);
-        }
+        return LocaleCompiler.load(locale, getLocalePath().resolve(COMPILED_DIRECTORY));
     }
 
-    private Map<String, String> bundleMap(Path path) throws IOException {
+    private Map<String, String> bundleMap(String content) {
         var map = new TreeMap<String, String>(String::compareToIgnoreCase);
-        Files.readAllLines(path, StandardCharsets.UTF_8).stream()
+        content.lines()
                 .map(line -> line.split("=", 2)).filter(line -> line.length == 2)
                 .forEach(line -> map.put(line[0], line[1]));
         return map;
@@ -431,68 +748,90 @@ public class Localizer implements ILocalizer {
             plugin.getLogger().log(Level.WARNING, "Failed to load message files.");
         }
 
+        // get the default keys.
+        Set<String> referenceKeys;
+        try {
+            referenceKeys = getDefaultKeys();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not load reference file... Aborting update!", e);
+            return;
+        }
+
+        var index = LocaleFileIndex.load(getLocalePath(), plugin.getDescription().getVersion(), referenceKeys);
 
         // Update keys of existing files.
-        for (var path : localeFiles) {
+        var executor = PluginExecutors.of(plugin);
+        CompletableFuture.allOf(localeFiles.stream()
+                .map(path -> CompletableFuture.runAsync(() -> updateLocaleFile(path, referenceKeys, index), executor))
+                .toArray(CompletableFuture[]::new)).join();
 
-            // get the default keys.
-            Set<String> updateKeys;
-            try {
-                updateKeys = getDefaultKeys();
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.WARNING, "Could not load reference file... Aborting update!", e);
-                return;
-            }
+        try {
+            index.save();
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not save locale file index.", e);
+        }
+    }
 
-            // try to search for a included updated version.
-            ResourceBundle refBundle;
-            try {
-                refBundle = getBundle(extractLocale(path));
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.SEVERE, "Could not load any reference locale", e);
-                continue;
-            }
+    private void updateLocaleFile(Path path, Set<String> referenceKeys, LocaleFileIndex index) {
+        var fileName = path.getFileName().toString();
 
-            // load the external property file.
-            Map<String, String> bundleMap;
-            try {
-                bundleMap = bundleMap(path);
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.WARNING, "Could not update locale " + path + ".", e);
-                continue;
-            }
+        // load the external property file.
+        String content;
+        try {
+            content = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not update locale " + path + ".", e);
+            return;
+        }
 
-            updateKeys.removeAll(bundleMap.keySet());
+        var hash = LocaleFileIndex.hash(content.getBytes(StandardCharsets.UTF_8));
+        if (index.isUnchanged(fileName, hash)) {
+            index.record(fileName, hash);
+            return;
+        }
 
-            if (updateKeys.isEmpty()) {
-                plugin.getLogger().info("Locale " + path + " is up to date.");
-                continue;
-            }
-            plugin.getLogger().info("Updating " + path + ".");
-
-            // check if ref key is in locale
-            for (var currKey : updateKeys) {
-                var value = refBundle.containsKey(currKey) ? refBundle.getString(currKey) : runtimeLocaleCodes.getOrDefault(currKey, "");
-                // Add the property with the value if it exists in an internal file.
-                bundleMap.put(currKey, value);
-                plugin.getLogger().info("Added: " + currKey + "=" + value.replace("\n", "\\n"));
-            }
+        var bundleMap = bundleMap(content);
+        Set<String> updateKeys = new HashSet<>(referenceKeys);
+        updateKeys.removeAll(bundleMap.keySet());
 
-            List<String> lines = new ArrayList<>();
-            lines.add("# File automatically updated at " + timestamp());
+        if (updateKeys.isEmpty()) {
+            plugin.getLogger().info("Locale " + path + " is up to date.");
+            index.record(fileName, hash);
+            return;
+        }
+        plugin.getLogger().info("Updating " + path + ".");
 
-            bundleMap.entrySet().stream()
-                    .map(e -> String.format("%s=%s", e.getKey(), e.getValue().replace("\n", "\\n")))
-                    .forEach(lines::add);
+        // try to search for a included updated version.
+        ResourceBundle refBundle;
+        try {
+            refBundle = getBundle(extractLocale(path));
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Could not load any reference locale", e);
+            return;
+        }
 
-            try {
-                Files.write(path, lines, StandardCharsets.UTF_8);
-            } catch (IOException e) {
-                plugin.getLogger().log(Level.WARNING, "Could not update locale " + path + ".", e);
-                continue;
-            }
-            plugin.getLogger().info("Updated locale " + path + ". Please check your translation.");
+        // check if ref key is in locale
+        for (var currKey : updateKeys) {
+            var value = refBundle.containsKey(currKey) ? refBundle.getString(currKey) : runtimeLocaleCodes.getOrDefault(currKey, "");
+            // Add the property with the value if it exists in an internal file.
+            bundleMap.put(currKey, value);
+            plugin.getLogger().info("Added: " + currKey + "=" + value.replace("\n", "\\n"));
+        }
+
+        var lines = new StringBuilder("# File automatically updated at ").append(timestamp()).append(System.lineSeparator());
+        bundleMap.entrySet().stream()
+                .map(e -> String.format("%s=%s", e.getKey(), e.getValue().replace("\n", "\\n")))
+                .forEach(line -> lines.append(line).append(System.lineSeparator()));
+
+        var updated = lines.toString();
+        try {
+            Files.writeString(path, updated, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not update locale " + path + ".", e);
+            return;
         }
+        index.record(fileName, LocaleFileIndex.hash(updated.getBytes(StandardCharsets.UTF_8)));
+        plugin.getLogger().info("Updated locale " + path + ". Please check your translation.");
     }
 
     private Locale extractLocale(Path filename) {
@@ -560,12 +899,16 @@ public class Localizer implements ILocalizer {
     @Override
     public void addLocaleCodes(Map<String, String> runtimeLocaleCodes) {
         this.runtimeLocaleCodes.putAll(runtimeLocaleCodes);
+        rebuild();
     }
 
     @Override
     public void registerChild(ILocalizer localizer) {
         plugin.getLogger().info("Localizer from " + localizer.plugin().getName() + " registered as child.");
-        children.add(localizer);
+        if (localizer instanceof Localizer child) {
+            child.parents.add(this);
+        }
+        childChanged(localizer, true);
     }
 
     private static class DummyResourceBundle extends ResourceBundle {
@@ -9,6 +9,7 @@ package de.eldoria.eldoutilities.localization;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -24,6 +25,8 @@ public class LocalizerBuilder {
     private String localesPath = "messages";
     private String localesPrefix = "messages";
     private Function<Player, String> userLocale;
+    private Duration hotReload;
+    private Duration localeIdleTime = Duration.ofMinutes(10);
 
     LocalizerBuilder(Plugin plugin, String fallbackLocale) {
         this.plugin = plugin;
@@ -62,7 +65,31 @@ public class LocalizerBuilder {
         return this;
     }
 
+    /**
+     * Reload locale files when they are changed.
+     *
+     * @param debounce time without changes before the files are reloaded
+     * @return builder instance
+     */
+    public LocalizerBuilder setHotReload(Duration debounce) {
+        this.hotReload = debounce;
+        return this;
+    }
+
+    /**
+     * Set the time after which unused locales are unloaded. The fallback locale is never unloaded.
+     *
+     * @param localeIdleTime idle time of a locale
+     * @return builder instance
+     */
+    public LocalizerBuilder setLocaleIdleTime(Duration localeIdleTime) {
+        this.localeIdleTime = localeIdleTime;
+        return this;
+    }
+
     public Localizer build() {
-        return new Localizer(plugin, localesPath, localesPrefix, fallbackLocale, userLocale, includedLocales, runtimeLocaleCodes);
+        var localizer = new Localizer(plugin, localesPath, localesPrefix, fallbackLocale, userLocale, includedLocales, runtimeLocaleCodes, localeIdleTime);
+        if (hotReload != null) localizer.watch(hotReload);
+        return localizer;
     }
 }
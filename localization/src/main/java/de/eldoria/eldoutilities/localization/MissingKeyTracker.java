@@ -0,0 +1,185 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import de.eldoria.eldoutilities.debug.DebugDataProvider;
+import de.eldoria.eldoutilities.debug.data.EntryData;
+import de.eldoria.eldoutilities.messages.MessageSender;
+import de.eldoria.eldoutilities.threading.scheduler.TaskHandle;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Records keys which were requested from a {@link Localizer}, but are missing in the locale files.
+ * <p>
+ * The first request of a key in a locale is recorded with its caller. Further requests only increase a counter.
+ * The number of recorded keys is limited. Requests of keys, which can not be recorded anymore, are counted as well.
+ * <p>
+ * Requests since the last digest are logged periodically. The recorded keys are part of the debug data, when the
+ * tracker is returned by a {@link DebugDataProvider} of the plugin.
+ *
+ * @since 2.2.0
+ */
+public final class MissingKeyTracker implements DebugDataProvider {
+    private static final int MAX_KEYS = 256;
+    private static final int DIGEST_KEYS = 10;
+    private static final Duration DIGEST_PERIOD = Duration.ofMinutes(5);
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    // resolved from classes, as the packages are relocated when the library is shaded
+    private static final String LOCALIZATION_PACKAGE = Localizer.class.getPackageName() + ".";
+    private static final String MESSAGES_PACKAGE = MessageSender.class.getPackageName() + ".";
+    private final Plugin plugin;
+    private final Map<Occurrence, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private long reportedDropped;
+    private TaskHandle digest;
+
+    MissingKeyTracker(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Records a request of a missing key.
+     *
+     * @param key    key
+     * @param locale locale of the request
+     * @return the recorded entry if this was the first request of the key in the locale, otherwise null
+     */
+    Entry record(String key, String locale) {
+        var occurrence = new Occurrence(key, locale);
+        var entry = entries.get(occurrence);
+        if (entry != null) {
+            entry.count.increment();
+            return null;
+        }
+        if (entries.size() >= MAX_KEYS) {
+            dropped.increment();
+            return null;
+        }
+        var caller = caller();
+        var created = new Entry[1];
+        entry = entries.computeIfAbsent(occurrence, k -> created[0] = new Entry(key, locale, caller, Instant.now()));
+        if (entry == created[0]) {
+            startDigest();
+            return entry;
+        }
+        entry.count.increment();
+        return null;
+    }
+
+    /**
+     * Removes all recorded keys, e.g. after the locales were reloaded.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    private synchronized void startDigest() {
+        if (digest != null || !plugin.isEnabled()) return;
+        var period = DIGEST_PERIOD.toMillis() / 50;
+        digest = TaskSchedulers.of(plugin).async().runTimer(this::digest, period, period);
+    }
+
+    /**
+     * Logs the keys which were requested since the last digest.
+     */
+    synchronized void digest() {
+        var requested = entries.values().stream()
+                .filter(entry -> entry.count.sum() > entry.reported)
+                .sorted(Comparator.comparingLong((Entry entry) -> entry.count.sum() - entry.reported).reversed())
+                .toList();
+        var droppedCount = dropped.sum();
+        var newDropped = droppedCount - reportedDropped;
+        if (requested.isEmpty() && newDropped == 0) return;
+
+        var total = newDropped;
+        var builder = new StringBuilder();
+        for (var i = 0; i < requested.size(); i++) {
+            var entry = requested.get(i);
+            var count = entry.count.sum();
+            total += count - entry.reported;
+            if (i < DIGEST_KEYS) {
+                builder.append("\n  ").append(entry.key).append(" (").append(entry.locale).append("): ")
+                       .append(count - entry.reported);
+            }
+            entry.reported = count;
+        }
+        if (requested.size() > DIGEST_KEYS) {
+            builder.append("\n  and ").append(requested.size() - DIGEST_KEYS).append(" more");
+        }
+        if (newDropped > 0) {
+            builder.append("\n  ").append(newDropped).append(" requests of keys which were not recorded anymore");
+        }
+        reportedDropped = droppedCount;
+        plugin.getLogger().warning("Missing locale keys were requested %d times since the last report:%s"
+                .formatted(total, builder));
+    }
+
+    @Override
+    public @NotNull EntryData[] getDebugInformations() {
+        var content = entries.values().stream()
+                .sorted(Comparator.comparing((Entry entry) -> entry.key).thenComparing(entry -> entry.locale))
+                .map(entry -> "%s (%s): %d requests, first at %s by %s".formatted(
+                        entry.key, entry.locale, entry.count.sum(), entry.firstSeen, entry.caller))
+                .collect(Collectors.joining("\n"));
+        var droppedCount = dropped.sum();
+        if (droppedCount > 0) {
+            content += "\n%d requests of keys which were not recorded".formatted(droppedCount);
+        }
+        return new EntryData[]{new EntryData("Missing Locale Keys", content.isEmpty() ? "None" : content)};
+    }
+
+    /**
+     * The first frame outside the localization and message modules.
+     */
+    private static String caller() {
+        return WALKER.walk(frames -> frames
+                .filter(frame -> !frame.getClassName().startsWith(LOCALIZATION_PACKAGE)
+                                 && !frame.getClassName().startsWith(MESSAGES_PACKAGE))
+                .findFirst()
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .map(StackTraceElement::toString)
+                .orElse("unknown"));
+    }
+
+    private record Occurrence(String key, String locale) {
+    }
+
+    /**
+     * A key which was requested in a locale.
+     */
+    static final class Entry {
+        private final String key;
+        private final String locale;
+        private final String caller;
+        private final Instant firstSeen;
+        private final LongAdder count = new LongAdder();
+        // the first request is logged when it is recorded
+        private long reported = 1;
+
+        private Entry(String key, String locale, String caller, Instant firstSeen) {
+            this.key = key;
+            this.locale = locale;
+            this.caller = caller;
+            this.firstSeen = firstSeen;
+            count.increment();
+        }
+
+        String caller() {
+            return caller;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerLocaleChangeEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Caches the locale index of online players.
+ * <p>
+ * The user locale function is only called once per player. The cached index is removed when the player changes the
+ * locale or quits. Players are only cached once the listener is registered, which requires an enabled plugin.
+ * <p>
+ * Every entry is stamped with the generation of the message table it was resolved with. Entries of an older
+ * generation are resolved again with the cached locale when they are read.
+ */
+final class PlayerLocaleCache implements Listener {
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Plugin plugin;
+    private final Function<Player, String> userLocale;
+    private final ToIntFunction<String> resolver;
+    private final AtomicBoolean registering = new AtomicBoolean();
+    private volatile boolean registered;
+    private volatile int generation;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param plugin     plugin which owns the localizer
+     * @param userLocale function providing the locale code of a player
+     * @param resolver   resolves the index of a locale code
+     */
+    PlayerLocaleCache(Plugin plugin, Function<Player, String> userLocale, ToIntFunction<String> resolver) {
+        this.plugin = plugin;
+        this.userLocale = userLocale;
+        this.resolver = resolver;
+    }
+
+    /**
+     * Get the index of the locale of a player.
+     *
+     * @param player player
+     * @return locale index
+     */
+    int index(Player player) {
+        var cached = entries.get(player.getUniqueId());
+        var current = generation;
+        if (cached != null && cached.generation() == current) return cached.index();
+        var locale = cached == null ? userLocale.apply(player) : cached.locale();
+        // the generation is read before the index is resolved, so a table swapped in between invalidates the entry
+        var entry = new Entry(locale, resolver.applyAsInt(locale), current);
+        if (!register()) return entry.index();
+        if (cached == null) {
+            entries.putIfAbsent(player.getUniqueId(), entry);
+        } else {
+            entries.replace(player.getUniqueId(), cached, entry);
+        }
+        return entry.index();
+    }
+
+    /**
+     * The locales of all cached players. Players whose locale is not loaded yet are included.
+     *
+     * @return locales in use
+     */
+    Set<String> activeLocales() {
+        Set<String> locales = new HashSet<>();
+        for (var entry : entries.values()) {
+            if (entry.locale() != null) locales.add(entry.locale());
+        }
+        return locales;
+    }
+
+    /**
+     * Marks all cached indices as outdated. Has to be called when the message table changes.
+     */
+    void tableChanged() {
+        generation++;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLocaleChange(PlayerLocaleChangeEvent event) {
+        var player = event.getPlayer();
+        entries.remove(player.getUniqueId());
+        // The locale of the player might not be updated until the event is done.
+        TaskSchedulers.of(plugin).entity(player).runLater(() -> entries.remove(player.getUniqueId()), 1);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        entries.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Registers the listener. Listeners can only be registered on the main thread, so other threads schedule the
+     * registration and do not cache players until it is done.
+     *
+     * @return true if the listener is registered
+     */
+    private boolean register() {
+        if (registered) return true;
+        if (!plugin.isEnabled()) return false;
+        var global = TaskSchedulers.of(plugin).global();
+        if (global.isOwnedByCurrentThread()) {
+            registerListener();
+        } else if (registering.compareAndSet(false, true)) {
+            global.run(this::registerListener);
+        }
+        return registered;
+    }
+
+    private synchronized void registerListener() {
+        if (!registered && plugin.isEnabled()) {
+            plugin.getServer().getPluginManager().registerEvents(this, plugin);
+            registered = true;
+        }
+        registering.set(false);
+    }
+
+    private record Entry(String locale, int index, int generation) {
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LocaleCompilerTest {
+
+    @Test
+    void compile() {
+        var entries = new LinkedHashMap<String, String>();
+        for (var i = 0; i < 1000; i++) {
+            entries.put("message.key" + i, "Value <gold>" + i + "ä");
+        }
+        var bundle = new CompiledBundle(ByteBuffer.wrap(LocaleCompiler.compile(entries, new byte[32])));
+        for (var entry : entries.entrySet()) {
+            assertEquals(entry.getValue(), bundle.getString(entry.getKey()));
+        }
+        assertFalse(bundle.containsKey("message.missing"));
+        assertNull(bundle.handleGetObject("message.missing"));
+        assertEquals(entries.size(), Collections.list(bundle.getKeys()).size());
+    }
+}
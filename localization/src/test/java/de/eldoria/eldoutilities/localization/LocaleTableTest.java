@@ -0,0 +1,147 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocaleTableTest {
+    private static final List<String> LOCALES = List.of("en_US", "de_DE", "fr_FR");
+
+    @Test
+    void fallbackOrder() {
+        var bundles = Map.of(
+                "en_US", bundle(Map.of("a.locale", "en", "a.fallback", "en")),
+                "de_DE", bundle(Map.of("a.locale", "de")));
+        var child = new TestChild(Map.of(
+                "en_US", Map.of("a.locale", "child", "a.fallback", "child", "a.child", "child"),
+                "de_DE", Map.of("a.child", "kind")));
+        var owners = new KeyOwnerIndex();
+        owners.register(child);
+        var runtime = Map.of("a.locale", "runtime", "a.child", "runtime", "a.runtime", "runtime");
+        var table = LocaleTable.build(LOCALES, "en_US", bundles, owners, runtime);
+        var en = table.index("en_US");
+        var de = table.index("de_DE");
+
+        // locale, fallback, child and runtime codes
+        assertEquals("de", table.get("a.locale", de));
+        assertEquals("en", table.get("a.fallback", de));
+        assertEquals("kind", table.get("a.child", de));
+        assertEquals("child", table.get("a.child", en));
+        assertEquals("runtime", table.get("a.runtime", de));
+        assertNull(table.get("a.missing", de));
+
+        // locales which are not loaded resolve the values of the fallback locale
+        var fr = table.index("fr_FR");
+        assertFalse(table.isLoaded(fr));
+        assertEquals("en", table.get("a.locale", fr));
+        assertEquals("child", table.get("a.child", fr));
+    }
+
+    @Test
+    void firstRegisteredChildOwnsKey() {
+        var first = new TestChild(Map.of("en_US", Map.of("x.shared", "first")));
+        var second = new TestChild(Map.of("en_US", Map.of("x.shared", "second", "x.second", "second")));
+        var owners = new KeyOwnerIndex();
+        owners.register(first);
+        owners.register(second);
+        var table = LocaleTable.build(LOCALES, "en_US", Map.of(), owners, Map.of());
+
+        assertSame(first, owners.owner("x.shared"));
+        assertSame(second, owners.owner("x.second"));
+        assertEquals("first", table.get("x.shared", table.index("en_US")));
+        assertEquals("second", table.get("x.second", table.index("en_US")));
+    }
+
+    @Test
+    void partialUpdateAfterChildReload() {
+        var first = new TestChild(Map.of("en_US", Map.of("x.shared", "first", "x.removed", "first")));
+        var second = new TestChild(Map.of("en_US", Map.of("x.shared", "second")));
+        var owners = new KeyOwnerIndex();
+        owners.register(first);
+        owners.register(second);
+        var bundles = Map.of("en_US", bundle(Map.of("a.bundle", "bundle")));
+        var table = LocaleTable.build(LOCALES, "en_US", bundles, owners, Map.of());
+        var en = table.index("en_US");
+
+        // the first child drops two keys and adds a new one
+        first.messages = Map.of("en_US", Map.of("x.added", "added"));
+        var keys = owners.update(first);
+        assertEquals(Set.of("x.shared", "x.removed", "x.added"), keys);
+        var updated = table.update(keys, owners, Map.of());
+
+        assertSame(second, owners.owner("x.shared"));
+        assertEquals("second", updated.get("x.shared", en));
+        assertEquals("added", updated.get("x.added", en));
+        assertNull(updated.get("x.removed", en));
+        assertEquals("bundle", updated.get("a.bundle", en));
+        assertTrue(updated.keys().containsAll(Set.of("x.shared", "x.added", "a.bundle")));
+        // the previous table is not changed
+        assertEquals("first", table.get("x.shared", en));
+        assertEquals("first", table.get("x.removed", en));
+    }
+
+    private static ResourceBundle bundle(Map<String, String> messages) {
+        return new ResourceBundle() {
+            @Override
+            protected Object handleGetObject(@NotNull String key) {
+                return messages.get(key);
+            }
+
+            @NotNull
+            @Override
+            public Enumeration<String> getKeys() {
+                return Collections.enumeration(messages.keySet());
+            }
+        };
+    }
+
+    private static final class TestChild extends ILocalizer.DummyLocalizer {
+        private Map<String, Map<String, String>> messages;
+
+        private TestChild(Map<String, Map<String, String>> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public Set<String> includedLocales() {
+            return messages.keySet();
+        }
+
+        @Override
+        public ResourceBundle localeBundle(String language) {
+            return bundle(messages.getOrDefault(language, Map.of()));
+        }
+
+        @Override
+        public ResourceBundle defaultBundle() {
+            return localeBundle("en_US");
+        }
+
+        @Override
+        public @Nullable String getValue(String key, String language) {
+            var values = new HashMap<>(messages.getOrDefault("en_US", Map.of()));
+            values.putAll(messages.getOrDefault(language, Map.of()));
+            return values.get(key);
+        }
+    }
+}
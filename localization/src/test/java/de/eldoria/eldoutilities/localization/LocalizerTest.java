@@ -0,0 +1,103 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import de.eldoria.eldoutilities.threading.futures.PluginExecutors;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalizerTest {
+    private static final Map<String, String> RESOURCES = Map.of(
+            "messages.properties", "a.b=default\n",
+            "messages_en_US.properties", "a.b=english\n",
+            "messages_de_DE.properties", "a.b=deutsch\n");
+    private Plugin plugin;
+    private Localizer localizer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        plugin = mock(Plugin.class);
+        var dataFolder = Files.createTempDirectory("localizer").toFile();
+        dataFolder.deleteOnExit();
+        when(plugin.getName()).thenReturn("LocalizerTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("LocalizerTest"));
+        when(plugin.getDataFolder()).thenReturn(dataFolder);
+        when(plugin.getDescription()).thenReturn(new PluginDescriptionFile("LocalizerTest", "1.0", "LocalizerTest"));
+        when(plugin.getResource(anyString())).thenAnswer(invocation -> {
+            var content = RESOURCES.get(invocation.<String>getArgument(0));
+            return content == null ? null : new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        });
+        localizer = Localizer.builder(plugin, "en_US")
+                .setIncludedLocales("de_DE")
+                .setLocaleIdleTime(Duration.ofMinutes(1))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ILocalizer.LOCALIZER.remove(plugin.getClass());
+        PluginExecutors.shutdown(plugin, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void loadsLocaleOnFirstRequest() throws InterruptedException {
+        // the fallback locale is used until the locale is loaded
+        assertEquals("english", localizer.getValue("a.b", "de_DE"));
+        assertEquals("deutsch", await("a.b", "de_DE", "deutsch"));
+        // unknown locales always resolve the fallback locale
+        assertEquals("english", localizer.getValue("a.b", "fr_FR"));
+        assertEquals("english", await("a.b", "fr_FR", "english"));
+    }
+
+    @Test
+    void evictsIdleLocale() throws InterruptedException {
+        localizer.getValue("a.b", "de_DE");
+        await("a.b", "de_DE", "deutsch");
+
+        // the locale was used in the previous sweep
+        localizer.evictIdle();
+        assertEquals("deutsch", localizer.getValue("a.b", "de_DE"));
+        localizer.evictIdle();
+        assertEquals("deutsch", localizer.getValue("a.b", "de_DE"));
+
+        // not used for two sweeps
+        localizer.evictIdle();
+        localizer.evictIdle();
+        assertEquals("english", localizer.getValue("a.b", "de_DE"));
+        // the locale is loaded again
+        assertEquals("deutsch", await("a.b", "de_DE", "deutsch"));
+        // the fallback locale is never evicted
+        for (var i = 0; i < 4; i++) localizer.evictIdle();
+        assertEquals("english", localizer.getValue("a.b", "en_US"));
+    }
+
+    private String await(String key, String locale, String expected) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        var value = localizer.getValue(key, locale);
+        while (!expected.equals(value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            value = localizer.getValue(key, locale);
+        }
+        return value;
+    }
+}
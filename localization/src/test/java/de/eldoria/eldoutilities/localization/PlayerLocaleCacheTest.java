@@ -0,0 +1,109 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.localization;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PlayerLocaleCacheTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private final Map<String, Integer> loaded = new ConcurrentHashMap<>();
+    private final AtomicInteger localeRequests = new AtomicInteger();
+    private Plugin plugin;
+    private Player player;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("PlayerLocaleCacheTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("PlayerLocaleCacheTest"));
+        when(plugin.isEnabled()).thenReturn(true);
+        TaskSchedulers.override(plugin, scheduler);
+        player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+    }
+
+    @Test
+    void outdatedIndexIsResolvedAgain() throws Exception {
+        var cache = cache(locale -> loaded.getOrDefault(locale, 0));
+        assertEquals(0, index(cache));
+        assertEquals(0, index(cache));
+
+        loaded.put("de_DE", 2);
+        cache.tableChanged();
+        assertEquals(2, index(cache));
+        // the locale of the player is cached as well
+        assertEquals(1, localeRequests.get());
+    }
+
+    @Test
+    void tableChangedWhileResolving() throws Exception {
+        var holder = new PlayerLocaleCache[1];
+        holder[0] = cache(locale -> {
+            var index = loaded.getOrDefault(locale, 0);
+            if (index == 0) {
+                // the locale is loaded right after the fallback index was resolved
+                loaded.put(locale, 2);
+                holder[0].tableChanged();
+            }
+            return index;
+        });
+        assertEquals(0, index(holder[0]));
+        assertEquals(2, index(holder[0]));
+    }
+
+    @Test
+    void activeLocalesSurviveTableChanges() throws Exception {
+        var cache = cache(locale -> 0);
+        index(cache);
+        cache.tableChanged();
+        assertEquals(Set.of("de_DE"), cache.activeLocales());
+    }
+
+    private PlayerLocaleCache cache(ToIntFunction<String> resolver) {
+        return new PlayerLocaleCache(plugin, player -> {
+            localeRequests.incrementAndGet();
+            return "de_DE";
+        }, resolver);
+    }
+
+    /**
+     * Resolves the index of the player on the global thread, which is allowed to register the listener.
+     */
+    private int index(PlayerLocaleCache cache) throws Exception {
+        var result = new CompletableFuture<Integer>();
+        scheduler.global().run(() -> result.complete(cache.index(player)));
+        return result.get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.messages;
+
+import de.eldoria.eldoutilities.localization.ILocalizer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.Context;
+import net.kyori.adventure.text.minimessage.ParsingException;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Resolves {@code <i18n:key>} tags of a single message.
+ * <p>
+ * The localized value of a key is parsed with the context of the message, which expands nested tags in the same parse.
+ * Every key is parsed once per message. Keys which reference themselves or exceed the maximum depth are inserted as
+ * plain key.
+ */
+final class LocalizationTagResolver implements TagResolver {
+    private static final String TAG = "i18n";
+    private static final int MAX_DEPTH = 8;
+    private final ILocalizer localizer;
+    private final CommandSender sender;
+    private final Logger logger;
+    private final Set<String> reported;
+    private final Deque<String> expanding = new ArrayDeque<>();
+    private final Map<String, Tag> resolved = new HashMap<>();
+
+    /**
+     * Creates a resolver for a message.
+     *
+     * @param localizer localizer
+     * @param sender    receiver of the message
+     * @param logger    logger for keys which reference themselves
+     * @param reported  chains of keys which were already logged
+     */
+    LocalizationTagResolver(ILocalizer localizer, @Nullable CommandSender sender, Logger logger, Set<String> reported) {
+        this.localizer = localizer;
+        this.sender = sender;
+        this.logger = logger;
+        this.reported = reported;
+    }
+
+    @Override
+    public @Nullable Tag resolve(@NotNull String name, @NotNull ArgumentQueue arguments, @NotNull Context ctx) throws ParsingException {
+        if (!has(name)) return null;
+        var key = arguments.popOr("locale tag required").value();
+        var tag = resolved.get(key);
+        if (tag != null) return tag;
+
+        if (expanding.contains(key) || expanding.size() >= MAX_DEPTH) {
+            report(key);
+            return Tag.selfClosingInserting(Component.text(key));
+        }
+        var value = localizer.localize(sender, key);
+        expanding.push(key);
+        try {
+            tag = Tag.selfClosingInserting(ctx.deserialize(value));
+        } finally {
+            expanding.pop();
+        }
+        resolved.put(key, tag);
+        return tag;
+    }
+
+    @Override
+    public boolean has(@NotNull String name) {
+        return TAG.equals(name);
+    }
+
+    private void report(String key) {
+        List<String> chain = new ArrayList<>(expanding);
+        // the deque iterates from the innermost key
+        Collections.reverse(chain);
+        chain.add(key);
+        var path = String.join(" -> ", chain);
+        if (!reported.add(path)) return;
+        if (expanding.contains(key)) {
+            logger.warning("Locale key %s references itself: %s".formatted(key, path));
+        } else {
+            logger.warning("Locale key %s exceeds the maximum depth of %d nested keys: %s".formatted(key, MAX_DEPTH, path));
+        }
+    }
+}
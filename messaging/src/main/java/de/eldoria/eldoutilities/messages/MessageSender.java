@@ -12,10 +12,7 @@ import de.eldoria.eldoutilities.messages.conversion.MiniMessageConversion;
 import net.kyori.adventure.audience.Audience;
 import net.kyori.adventure.bossbar.BossBar;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.minimessage.Context;
 import net.kyori.adventure.text.minimessage.MiniMessage;
-import net.kyori.adventure.text.minimessage.tag.Tag;
-import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
 import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 import net.kyori.adventure.title.Title;
@@ -25,10 +22,10 @@ import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A message sender to manage message sending.
@@ -46,6 +43,8 @@ public abstract class MessageSender {
     @NotNull
     private final Class<? extends Plugin> ownerPlugin;
     private final Plugin plugin;
+    private final MessageTemplateCache templates = new MessageTemplateCache();
+    private final Set<String> reportedKeyChains = ConcurrentHashMap.newKeySet();
     private MiniMessage miniMessage;
     private TagResolver messageTagResolver;
     private TagResolver errorTagResolver;
@@ -99,6 +98,7 @@ public abstract class MessageSender {
         this.messageTagResolver = messageTagResolver;
         this.errorTagResolver = errorTagResolver;
         this.prefix = prefix;
+        templates.invalidateAll();
         return this;
     }
 
@@ -209,7 +209,37 @@ public abstract class MessageSender {
         return ILocalizer.getPluginLocalizer(ownerPlugin);
     }
 
+    /**
+     * Serializes a message.
+     * <p>
+     * Parsed messages are cached as {@link MessageTemplate}. Messages which were parsed before only replace their
+     * placeholders.
+     *
+     * @param sender      receiver of the message
+     * @param message     message or locale code
+     * @param resolver    tag resolver of the message type
+     * @param placeholder placeholders of the message
+     * @return serialized message
+     */
     protected Component serialize(CommandSender sender, String message, TagResolver resolver, TagResolver... placeholder) {
+        var placeholders = TagResolver.resolver(placeholder);
+        var key = templates.key(loc(), sender, message, resolver);
+        if (key != null) {
+            var template = templates.get(key);
+            if (template != null && template.matches(placeholders)) {
+                return template.render(miniMessage, placeholders);
+            }
+        }
+        var generation = templates.generation();
+        var recorder = new MessageTemplate.Recorder(placeholders);
+        var template = recorder.template(parse(sender, message, resolver, recorder));
+        if (key != null && recorder.isReusable()) {
+            templates.put(key, template, generation);
+        }
+        return template.render(miniMessage, placeholders);
+    }
+
+    private Component parse(CommandSender sender, String message, TagResolver resolver, TagResolver placeholders) {
         var converted = MiniMessageConversion.convertLegacyColorCodes(message);
         if (!converted.equals(message)) {
             plugin.getLogger().warning("Found legacy color codes in message.");
@@ -220,22 +250,7 @@ public abstract class MessageSender {
             message = ILocalizer.escape(message);
         }
         message = "<default>" + message;
-        var finalResolver = new TagResolver[]{resolver};
-        if (placeholder.length > 0) {
-            var tags = Arrays.copyOf(placeholder, placeholder.length + 1);
-            tags[tags.length - 1] = resolver;
-            finalResolver = tags;
-        }
-        return resolveTags(message, addI18nTag(sender, TagResolver.resolver(finalResolver)));
-    }
-
-    private Component resolveTags(String message, TagResolver... resolver) {
-        var component = miniMessage.deserialize(message, resolver);
-        var newMessage = miniMessage.serialize(component);
-        if (newMessage.equals(message)) {
-            return component;
-        }
-        return resolveTags(newMessage, resolver);
+        return miniMessage.deserialize(message, addI18nTag(sender, TagResolver.resolver(placeholders, resolver)));
     }
 
     public Component prefix() {
@@ -276,16 +291,11 @@ public abstract class MessageSender {
 
     private TagResolver addI18nTag(CommandSender sender, TagResolver resolvers) {
         if (loc() != ILocalizer.DEFAULT) {
-            return TagResolver.resolver(resolvers, TagResolver.builder()
-                    .tag("i18n", (argumentQueue, context) -> localizeTag(sender, argumentQueue, context)).build());
+            return TagResolver.resolver(resolvers, new LocalizationTagResolver(loc(), sender, plugin.getLogger(), reportedKeyChains));
         }
         return resolvers;
     }
 
-    private net.kyori.adventure.text.minimessage.tag.Tag localizeTag(CommandSender sender, ArgumentQueue args, Context ctx) {
-        return Tag.selfClosingInserting(ctx.deserialize(loc().localize(sender, args.popOr("locale tag required").value())));
-    }
-
 
     public boolean isAnonymous() {
         return ownerPlugin == null;
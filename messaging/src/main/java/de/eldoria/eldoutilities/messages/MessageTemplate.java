@@ -0,0 +1,152 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.messages;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextReplacementConfig;
+import net.kyori.adventure.text.minimessage.Context;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.ParsingException;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.ArgumentQueue;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed message with slots for its placeholders.
+ * <p>
+ * The template is parsed once with a marker in place of every placeholder. Rendering replaces the markers with the
+ * placeholders of the current message, so the message itself is not parsed again.
+ * <p>
+ * A template can be reused as long as the same tags of the message are resolved by placeholders.
+ */
+final class MessageTemplate {
+    // noncharacters do not appear in valid text
+    private static final char SLOT_START = '\uFDD0';
+    private static final char SLOT_END = '\uFDD1';
+    private static final Pattern SLOT = Pattern.compile(SLOT_START + "(\\d+)" + SLOT_END);
+    private final Component component;
+    private final String[] tags;
+    private final boolean[] placeholders;
+    private final String[] slots;
+
+    private MessageTemplate(Component component, String[] tags, boolean[] placeholders, String[] slots) {
+        this.component = component;
+        this.tags = tags;
+        this.placeholders = placeholders;
+        this.slots = slots;
+    }
+
+    /**
+     * Checks whether the template can be rendered with placeholders.
+     *
+     * @param resolver placeholders of the message
+     * @return true if the placeholders resolve the same tags as the placeholders the template was created with
+     */
+    boolean matches(TagResolver resolver) {
+        for (var i = 0; i < tags.length; i++) {
+            if (resolver.has(tags[i]) != placeholders[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param miniMessage mini message instance
+     * @param resolver    placeholders of the message
+     * @return rendered message
+     */
+    Component render(MiniMessage miniMessage, TagResolver resolver) {
+        if (slots.length == 0) return component;
+        var values = new Component[slots.length];
+        for (var i = 0; i < slots.length; i++) {
+            values[i] = miniMessage.deserialize("<" + slots[i] + ">", resolver);
+        }
+        return component.replaceText(TextReplacementConfig.builder()
+                .match(SLOT)
+                .replacement((result, builder) -> values[Integer.parseInt(result.group(1))])
+                .build());
+    }
+
+    /**
+     * Resolves placeholders to slots while a message is parsed.
+     * <p>
+     * Only placeholders which insert a component are replaced by slots. Parsed placeholders, placeholders with arguments
+     * and placeholders which style their content are resolved as usual and the message can not be used as template.
+     */
+    static final class Recorder implements TagResolver {
+        private final TagResolver resolver;
+        private final List<String> tags = new ArrayList<>();
+        private final List<Boolean> placeholders = new ArrayList<>();
+        private final List<String> slots = new ArrayList<>();
+        private boolean reusable = true;
+
+        /**
+         * Creates a new recorder.
+         *
+         * @param resolver placeholders of the message
+         */
+        Recorder(TagResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        @Override
+        public @Nullable Tag resolve(@NotNull String name, @NotNull ArgumentQueue arguments, @NotNull Context ctx) throws ParsingException {
+            var placeholder = resolver.has(name);
+            if (!tags.contains(name)) {
+                tags.add(name);
+                placeholders.add(placeholder);
+            }
+            if (!placeholder) return null;
+            var hasArguments = arguments.hasNext();
+            var tag = resolver.resolve(name, arguments, ctx);
+            // parsed placeholders are part of the message and interact with the surrounding tags
+            if (hasArguments || !(tag instanceof Tag.Inserting inserting && !inserting.allowsChildren())) {
+                reusable = false;
+                return tag;
+            }
+            var slot = slots.indexOf(name);
+            if (slot < 0) {
+                slot = slots.size();
+                slots.add(name);
+            }
+            return Tag.selfClosingInserting(Component.text(SLOT_START + String.valueOf(slot) + SLOT_END));
+        }
+
+        @Override
+        public boolean has(@NotNull String name) {
+            return resolver.has(name);
+        }
+
+        /**
+         * Checks whether the message can be rendered again with other placeholders.
+         *
+         * @return true if all placeholders were resolved to slots
+         */
+        boolean isReusable() {
+            return reusable;
+        }
+
+        /**
+         * Creates a template from the parsed message.
+         *
+         * @param component message parsed with this recorder
+         * @return template
+         */
+        MessageTemplate template(Component component) {
+            var flags = new boolean[placeholders.size()];
+            for (var i = 0; i < flags.length; i++) flags[i] = placeholders.get(i);
+            return new MessageTemplate(component, tags.toArray(String[]::new), flags, slots.toArray(String[]::new));
+        }
+    }
+}
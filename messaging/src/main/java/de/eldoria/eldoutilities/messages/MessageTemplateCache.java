@@ -0,0 +1,103 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.messages;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import de.eldoria.eldoutilities.localization.ILocalizer;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of the {@link MessageTemplate}s of a {@link MessageSender}.
+ * <p>
+ * Templates are cached per locale, message and tag resolver. The least recently used templates are evicted once the
+ * cache is full. All templates are invalidated when the messages of the localizer change.
+ */
+final class MessageTemplateCache {
+    private static final int MAX_SIZE = 1000;
+    private final Cache<Key, MessageTemplate> templates = CacheBuilder.newBuilder().maximumSize(MAX_SIZE).build();
+    private volatile ILocalizer localizer;
+    private volatile int generation;
+
+    /**
+     * Get the key of a message.
+     *
+     * @param localizer localizer of the message sender
+     * @param sender    receiver of the message
+     * @param message   message
+     * @param resolver  tag resolver of the message type
+     * @return key or null if the message can not be cached, because the localizer does not provide the locale of the
+     * receiver
+     */
+    @Nullable
+    Key key(ILocalizer localizer, @Nullable CommandSender sender, String message, TagResolver resolver) {
+        String locale = "";
+        if (localizer != ILocalizer.DEFAULT) {
+            locale = localizer.getLocale(sender);
+            if (locale == null) return null;
+        }
+        if (this.localizer != localizer) track(localizer);
+        return new Key(locale, message, resolver);
+    }
+
+    private synchronized void track(ILocalizer localizer) {
+        if (this.localizer == localizer) return;
+        this.localizer = localizer;
+        invalidateAll();
+        localizer.addReloadListener(() -> {
+            if (this.localizer == localizer) invalidateAll();
+        });
+    }
+
+    @Nullable
+    MessageTemplate get(Key key) {
+        return templates.getIfPresent(key);
+    }
+
+    /**
+     * The current generation of the cache. The generation changes when the cache is invalidated.
+     *
+     * @return generation
+     */
+    int generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a template, if the cache was not invalidated while the template was parsed.
+     *
+     * @param key        key of the message
+     * @param template   template
+     * @param generation generation of the cache before the template was parsed
+     */
+    void put(Key key, MessageTemplate template, int generation) {
+        if (this.generation != generation) return;
+        templates.put(key, template);
+    }
+
+    synchronized void invalidateAll() {
+        generation++;
+        templates.invalidateAll();
+    }
+
+    /**
+     * Key of a template. Tag resolvers are compared by identity.
+     */
+    record Key(String locale, String message, TagResolver resolver) {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key key && resolver == key.resolver && locale.equals(key.locale) && message.equals(key.message);
+        }
+
+        @Override
+        public int hashCode() {
+            return (locale.hashCode() * 31 + message.hashCode()) * 31 + System.identityHashCode(resolver);
+        }
+    }
+}
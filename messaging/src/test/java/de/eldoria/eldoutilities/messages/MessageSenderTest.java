@@ -0,0 +1,209 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.messages;
+
+import de.eldoria.eldoutilities.localization.ILocalizer;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.bossbar.BossBar;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.Tag;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import net.kyori.adventure.text.minimessage.tag.standard.StandardTags;
+import net.kyori.adventure.title.Title;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageSenderTest {
+    private Plugin plugin;
+    private MessageSender sender;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("MessageSenderTest"));
+        ILocalizer.LOCALIZER.put(plugin.getClass(), new TestLocalizer(Map.of(
+                "test.world", "World",
+                "test.nested", "<i18n:test.world> and <i18n:test.world>",
+                "test.self", "Self <i18n:test.self>",
+                "test.key", "test.world")));
+        var messageResolver = TagResolver.resolver(StandardTags.defaults(), TagResolver.builder()
+                .tag("default", Tag.styling(NamedTextColor.GREEN))
+                .tag("highlight", Tag.styling(NamedTextColor.GOLD))
+                .build());
+        sender = new TestMessageSender(plugin, MiniMessage.builder().tags(StandardTags.defaults()).build(), messageResolver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ILocalizer.LOCALIZER.remove(plugin.getClass());
+    }
+
+    @Test
+    void parsedReplacementWithStyleTag() {
+        assertEquals("[green]Hello [gold]Bob[green]!",
+                flatten(sender.serializeMessage("Hello <name>!", Replacement.create("name", "<highlight>Bob</highlight>"))));
+        // the second message uses the same message with another value
+        assertEquals("[green]Hello [gold]Alice[green]!",
+                flatten(sender.serializeMessage("Hello <name>!", Replacement.create("name", "<highlight>Alice</highlight>"))));
+    }
+
+    @Test
+    void parsedReplacementWithI18nTag() {
+        assertEquals("[green]Hello World!",
+                flatten(sender.serializeMessage("Hello <name>!", Replacement.create("name", "<i18n:test.world>"))));
+    }
+
+    @Test
+    void parsedReplacementWithUnclosedStyle() {
+        assertEquals("[green]Hello [red]Bob rest",
+                flatten(sender.serializeMessage("Hello <name> rest", Replacement.create("name", "<red>Bob"))));
+    }
+
+    @Test
+    void insertedPlaceholder() {
+        assertEquals("[green]Hello <red>Bob!",
+                flatten(sender.serializeMessage("Hello <name>!", Placeholder.unparsed("name", "<red>Bob"))));
+        assertEquals("[green]Hello Alice!",
+                flatten(sender.serializeMessage("Hello <name>!", Placeholder.unparsed("name", "Alice"))));
+    }
+
+    @Test
+    void nestedI18nTags() {
+        assertEquals("[green]World and World", flatten(sender.serializeMessage("test.nested")));
+    }
+
+    @Test
+    void selfReferencingI18nTag() {
+        // the inner reference is inserted as plain key
+        assertEquals("[green]Self test.self", flatten(sender.serializeMessage("test.self")));
+    }
+
+    @Test
+    void i18nDepthLimit() {
+        var localizer = new TestLocalizer(Map.of(
+                "test.a", "a<i18n:test.b>", "test.b", "b<i18n:test.c>", "test.c", "c<i18n:test.d>",
+                "test.d", "d<i18n:test.e>", "test.e", "e<i18n:test.f>", "test.f", "f<i18n:test.g>",
+                "test.g", "g<i18n:test.h>", "test.h", "h<i18n:test.i>", "test.i", "i"));
+        ILocalizer.LOCALIZER.put(plugin.getClass(), localizer);
+        // the ninth key exceeds the depth and is inserted as plain key
+        assertEquals("[green]abcdefghtest.i", flatten(sender.serializeMessage("test.a")));
+    }
+
+    @Test
+    void localizedValueIsNotAKey() {
+        // a value which looks like a locale key is inserted as text
+        assertEquals("[green]Key test.world", flatten(sender.serializeMessage("Key <i18n:test.key>")));
+    }
+
+    /**
+     * Flattens a component into its text. Changes of the color are marked with the name of the color.
+     */
+    private static String flatten(Component component) {
+        var builder = new StringBuilder();
+        flatten(component, Style.empty(), builder, new TextColor[1]);
+        return builder.toString();
+    }
+
+    private static void flatten(Component component, Style parent, StringBuilder builder, TextColor[] current) {
+        var style = component.style().merge(parent, Style.Merge.Strategy.IF_ABSENT_ON_TARGET);
+        if (component instanceof TextComponent text && !text.content().isEmpty()) {
+            var color = style.color();
+            if (!Objects.equals(color, current[0])) {
+                builder.append('[')
+                       .append(color == null ? "none" : NamedTextColor.NAMES.key(NamedTextColor.nearestTo(color)))
+                       .append(']');
+                current[0] = color;
+            }
+            builder.append(text.content());
+        }
+        for (var child : component.children()) {
+            flatten(child, style, builder, current);
+        }
+    }
+
+    private static final class TestLocalizer extends ILocalizer.DummyLocalizer {
+        private final Map<String, String> messages;
+
+        private TestLocalizer(Map<String, String> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public String localize(CommandSender sender, String message) {
+            return messages.getOrDefault(message, message);
+        }
+
+        @Override
+        public @Nullable String getLocale(@Nullable CommandSender sender) {
+            return "en_US";
+        }
+    }
+
+    private static final class TestMessageSender extends MessageSender {
+        private TestMessageSender(Plugin plugin, MiniMessage miniMessage, TagResolver messageTagResolver) {
+            super(plugin, miniMessage, messageTagResolver, messageTagResolver, Component.empty());
+        }
+
+        @Override
+        public void sendMessage(CommandSender sender, Component component) {
+        }
+
+        @Override
+        public void broadcast(String message) {
+        }
+
+        @Override
+        public void sendTitle(Player player, Title title) {
+        }
+
+        @Override
+        public void sendActionBar(Player player, String message, TagResolver... placeholder) {
+        }
+
+        @Override
+        public void sendErrorActionBar(Player player, String message, TagResolver... placeholder) {
+        }
+
+        @Override
+        public void sendBossBar(Player player, BossBar bossBar) {
+        }
+
+        @Override
+        public BossBar sendBossBar(Player player, String message, float progress, BossBar.Color color, BossBar.Overlay overlay, Set<BossBar.Flag> flags) {
+            return null;
+        }
+
+        @Override
+        public void hideBossBar(Player player, BossBar bossBar) {
+        }
+
+        @Override
+        public Audience asAudience(Player player) {
+            return null;
+        }
+    }
+}
@@ -5,5 +5,6 @@ dependencies {
     api(project(":core"))
     api(project(":debugging"))
     api(project(":configuration"))
+    api(project(":threading"))
     compileOnly(libs.spigot)
 }
@@ -14,6 +14,7 @@ import de.eldoria.eldoutilities.debug.DebugDataProvider;
 import de.eldoria.eldoutilities.debug.data.EntryData;
 import de.eldoria.eldoutilities.logging.DebugLogger;
 import de.eldoria.eldoutilities.serialization.util.PluginSerializationName;
+import de.eldoria.eldoutilities.threading.TaskScope;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabExecutor;
@@ -36,6 +37,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
@@ -109,6 +111,26 @@ public abstract class EldoPlugin extends JavaPlugin implements DebugDataProvider
 
     public abstract Level getLogLevel();
 
+    /**
+     * The max time to wait for asynchronous work of the {@link #getTaskScope()} when the plugin gets disabled.
+     *
+     * @return shutdown timeout
+     */
+    public Duration getShutdownTimeout() {
+        return Duration.ofSeconds(5);
+    }
+
+    /**
+     * Get the task scope of the plugin.
+     * <p>
+     * The scope is closed after {@link #onPluginDisable()} was called.
+     *
+     * @return task scope
+     */
+    public final TaskScope getTaskScope() {
+        return TaskScope.of(this);
+    }
+
     /**
      * Register a tabexecutor for a command.
      * <p>
@@ -379,6 +401,7 @@ public abstract class EldoPlugin extends JavaPlugin implements DebugDataProvider
         } catch (Throwable e) {
             getLogger().log(Level.SEVERE, "Plugin failed to shutdown correctly.", e);
         }
+        getTaskScope().close(getShutdownTimeout());
     }
 
     private Path getLockFile() {
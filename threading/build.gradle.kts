@@ -1,6 +1,8 @@
 description = "Utilitites for threading and scheduling"
 
 dependencies{
-    api(project(":core"))
-    compileOnly(libs.spigot)
+    compileOnly(libs.paper)
+    api(project(":core")) {
+        exclude("org.spigotmc")
+    }
 }
@@ -0,0 +1,193 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scheduler which executes at most one task per key and window.
+ * <p>
+ * Submitting a task for a key which already has a pending task replaces the pending task.
+ * The replaced task is never executed and counted as coalesced.
+ * <p>
+ * Tasks are executed on the main thread by a {@link DelayedActions} instance. Tasks can be submitted from any thread.
+ *
+ * @param <K> type of key
+ * @since 2.2.0
+ */
+public final class CoalescingScheduler<K> {
+    private final Map<K, Entry> pending = new ConcurrentHashMap<>();
+    private final DelayedActions actions;
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    private CoalescingScheduler(DelayedActions actions) {
+        this.actions = actions;
+    }
+
+    /**
+     * Creates a new scheduler with its own {@link DelayedActions}.
+     *
+     * @param plugin plugin which owns the instance
+     * @param <K>    type of key
+     * @return new scheduler
+     */
+    public static <K> CoalescingScheduler<K> start(Plugin plugin) {
+        return new CoalescingScheduler<>(DelayedActions.start(plugin));
+    }
+
+    /**
+     * Creates a new scheduler which uses an existing {@link DelayedActions} instance.
+     *
+     * @param actions delayed actions used to execute the tasks
+     * @param <K>     type of key
+     * @return new scheduler
+     */
+    public static <K> CoalescingScheduler<K> of(DelayedActions actions) {
+        return new CoalescingScheduler<>(actions);
+    }
+
+    /**
+     * Submit a task for a key.
+     * <p>
+     * If the key has a pending task, the pending task is replaced and executed at its original time.
+     * Otherwise, the task is executed after the delay.
+     *
+     * @param key   key
+     * @param delay delay in ticks. At least one tick.
+     * @param task  task to execute
+     * @throws IllegalStateException if the {@link DelayedActions} of the scheduler were shut down
+     */
+    public void submit(K key, int delay, Runnable task) {
+        ensureActive();
+        submitted.increment();
+        pending.compute(key, (k, entry) -> {
+            if (entry != null) {
+                entry.task = task;
+                coalesced.increment();
+                return entry;
+            }
+            return schedule(key, delay, task);
+        });
+    }
+
+    /**
+     * Submit a task for a key and restart the delay.
+     * <p>
+     * If the key has a pending task, the pending task is replaced and the delay starts again.
+     * The task is executed once no task was submitted for the key for the duration of the delay.
+     *
+     * @param key   key
+     * @param delay delay in ticks. At least one tick.
+     * @param task  task to execute
+     * @throws IllegalStateException if the {@link DelayedActions} of the scheduler were shut down
+     */
+    public void debounce(K key, int delay, Runnable task) {
+        ensureActive();
+        submitted.increment();
+        pending.compute(key, (k, entry) -> {
+            // the task can not be cancelled when it is currently executed.
+            if (entry != null && entry.handle.cancel()) {
+                coalesced.increment();
+            }
+            return schedule(key, delay, task);
+        });
+    }
+
+    /**
+     * Cancel the pending task of a key.
+     *
+     * @param key key
+     * @return true if a pending task was cancelled
+     */
+    public boolean cancel(K key) {
+        var entry = pending.remove(key);
+        return entry != null && entry.handle.cancel();
+    }
+
+    /**
+     * Checks whether the key has a pending task.
+     *
+     * @param key key
+     * @return true if a task is pending
+     */
+    public boolean isPending(K key) {
+        return pending.containsKey(key);
+    }
+
+    /**
+     * Amount of keys with a pending task.
+     *
+     * @return pending keys
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Amount of submitted tasks.
+     *
+     * @return submitted tasks
+     */
+    public long submitted() {
+        return submitted.sum();
+    }
+
+    /**
+     * Amount of executed tasks.
+     *
+     * @return executed tasks
+     */
+    public long executed() {
+        return executed.sum();
+    }
+
+    /**
+     * Amount of tasks which were replaced by a later task of the same key and never executed.
+     *
+     * @return coalesced tasks
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    private Entry schedule(K key, int delay, Runnable task) {
+        var entry = new Entry(task);
+        // a delay of at least one tick ensures that the task is never executed inside of compute
+        entry.handle = actions.schedule(() -> execute(key, entry), Math.max(1, delay));
+        // the actions were shut down after the check. The task is never executed, so the key is not pending.
+        if (!actions.isActive() && !entry.handle.isDone()) return null;
+        return entry;
+    }
+
+    private void ensureActive() {
+        if (!actions.isActive()) {
+            throw new IllegalStateException("The delayed actions of the scheduler are shut down.");
+        }
+    }
+
+    private void execute(K key, Entry entry) {
+        // remove first, so tasks submitted while executing get their own window
+        pending.remove(key, entry);
+        executed.increment();
+        entry.task.run();
+    }
+
+    private static final class Entry {
+        private volatile Runnable task;
+        private volatile DelayedActions.DelayedTask handle;
+
+        private Entry(Runnable task) {
+            this.task = task;
+        }
+    }
+}
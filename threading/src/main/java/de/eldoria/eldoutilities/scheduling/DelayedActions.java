@@ -6,19 +6,25 @@
 
 package de.eldoria.eldoutilities.scheduling;
 
+import de.eldoria.eldoutilities.threading.scheduler.ExecutionContext;
 import org.bukkit.plugin.Plugin;
-import org.jetbrains.annotations.NotNull;
 
-import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Scheduler service to schedule actions with only one scheduler and preserving the main thread from overloading.
+ * <p>
+ * Delayed actions are stored in a {@link TimingWheel}. Actions which are due are queued and executed within the tick budget.
+ * <p>
+ * Actions can be scheduled and cancelled from any thread. They are always executed on the thread owning the scheduler.
  *
  * @since 1.2.3
  */
 public final class DelayedActions extends QueuingSelfSchedulingTask<DelayedActions.DelayedTask> {
-    private int currentTick;
+    private final TimingWheel<DelayedTask> wheel = new TimingWheel<>();
+    private final Queue<DelayedTask> pending = new ConcurrentLinkedQueue<>();
 
     private DelayedActions(Plugin plugin) {
         super(plugin);
@@ -45,48 +51,120 @@ public final class DelayedActions extends QueuingSelfSchedulingTask<DelayedActio
 
     @Override
     public void tick() {
-        currentTick++;
-    }
-
-    @Override
-    protected Queue<DelayedTask> getQueueImplementation() {
-        return new PriorityQueue<>();
+        DelayedTask task;
+        while ((task = pending.poll()) != null) {
+            if (task.isCancelled()) continue;
+            task.timeout = wheel.schedule(task, task.delay);
+        }
+        wheel.advance(this::enqueue);
     }
 
     /**
-     * Delays an action by a specific amount of ticks
+     * Delays an action by a specific amount of ticks. This method is thread safe.
+     * <p>
+     * Actions without delay are executed immediately when called on the thread owning the scheduler and in the next tick otherwise.
      *
      * @param runnable runnable to execute
      * @param delay    delay for execution.
+     * @return a handle which can be used to cancel the action
      */
-    public void schedule(Runnable runnable, int delay) {
-        if (delay == 0) {
-            runnable.run();
-            return;
+    public DelayedTask schedule(Runnable runnable, int delay) {
+        var task = new DelayedTask(runnable, delay, getContext());
+        if (delay <= 0) {
+            if (getContext().isOwnedByCurrentThread()) {
+                task.invoke();
+            } else {
+                enqueue(task);
+            }
+            return task;
+        }
+        if (!isActive()) return task;
+        pending.offer(task);
+        if (!isRunning()) {
+            schedule();
+        }
+        return task;
+    }
+
+    @Override
+    protected long enqueuedAt(DelayedTask object) {
+        return object.dueAt;
+    }
+
+    @Override
+    protected boolean isIdle() {
+        return super.isIdle() && wheel.isEmpty() && pending.isEmpty();
+    }
+
+    @Override
+    protected void beforeShutdown() {
+        wheel.clear(this::execute);
+        DelayedTask task;
+        while ((task = pending.poll()) != null) {
+            execute(task);
         }
-        schedule(new DelayedTask(runnable, currentTick + delay));
     }
 
     @Override
-    protected boolean proceed(DelayedTask object) {
-        return object.tick <= currentTick;
+    public void clear() {
+        DelayedTask task;
+        while ((task = pending.poll()) != null) {
+            task.cancel();
+        }
+        wheel.clear(DelayedTask::cancel);
+        super.clear();
+    }
+
+    private void enqueue(DelayedTask task) {
+        // the queue wait of a delayed action is the time between becoming due and being executed.
+        task.dueAt = System.nanoTime();
+        schedule(task);
     }
 
-    protected static class DelayedTask implements Comparable<DelayedTask> {
+    /**
+     * A handle of an action scheduled via {@link #schedule(Runnable, int)}.
+     */
+    public static final class DelayedTask {
+        private static final int PENDING = 0;
+        private static final int DONE = 1;
+        private static final int CANCELLED = 2;
         private final Runnable runnable;
-        private final int tick;
+        private final int delay;
+        private final ExecutionContext context;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+        private TimingWheel.Timeout<DelayedTask> timeout;
+        private volatile long dueAt = -1;
 
-        public DelayedTask(Runnable runnable, int tick) {
+        private DelayedTask(Runnable runnable, int delay, ExecutionContext context) {
             this.runnable = runnable;
-            this.tick = tick;
+            this.delay = delay;
+            this.context = context;
+        }
+
+        /**
+         * Cancel the action. A cancelled action will not be executed.
+         * <p>
+         * When called from another thread than the thread owning the scheduler, the action is removed from the wheel once it is due.
+         *
+         * @return true if the action was cancelled. False if it was already executed or cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) return false;
+            // the wheel is only accessed by the thread owning the scheduler
+            if (timeout != null && context.isOwnedByCurrentThread()) timeout.cancel();
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
         }
 
-        @Override
-        public int compareTo(@NotNull DelayedActions.DelayedTask o) {
-            return Integer.compare(tick, o.tick);
+        public boolean isDone() {
+            return state.get() == DONE;
         }
 
-        public void invoke() {
+        private void invoke() {
+            if (!state.compareAndSet(PENDING, DONE)) return;
             runnable.run();
         }
     }
@@ -0,0 +1,323 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import de.eldoria.eldoutilities.threading.ReschedulingTask;
+import de.eldoria.eldoutilities.threading.TaskStatistics;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A task which handles queued objects of several lanes and schedules itself when it receives new objects.
+ * <p>
+ * Every lane has its own queue, for example per player or per world. The lanes are served with deficit round robin.
+ * Each lane receives a quantum of time per round and may handle objects until its time is used up.
+ * This way a flood of objects in one lane does not delay the objects of other lanes.
+ * <p>
+ * Lanes are bounded. Once a lane reached its capacity the {@link OverflowPolicy} decides what happens to new objects.
+ * Only {@link OverflowPolicy#DROP_NEWEST} and {@link OverflowPolicy#DROP_OLDEST} are supported.
+ * Empty lanes are removed.
+ * <p>
+ * The time used per tick is limited by the {@link de.eldoria.eldoutilities.threading.TickBudget} and the max duration target.
+ * Objects can be scheduled from any thread.
+ *
+ * @param <K> type of lane key
+ * @param <T> type of queued objects
+ * @since 2.2.0
+ */
+public abstract class LaneQueuingTask<K, T> extends ReschedulingTask {
+    protected static final int DEFAULT_MAX_DURATION_TARGET = 50;
+    protected static final int DEFAULT_MAX_IDLE_TICKS = 200;
+    protected static final int DEFAULT_LANE_CAPACITY = 10000;
+    protected static final long DEFAULT_QUANTUM = TimeUnit.MICROSECONDS.toNanos(500);
+    private final Map<K, Lane<K, T>> lanes = new ConcurrentHashMap<>();
+    private final Queue<Lane<K, T>> activations = new ConcurrentLinkedQueue<>();
+    private final Deque<Lane<K, T>> ring = new ArrayDeque<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final TaskStatistics statistics = new TaskStatistics();
+    private final int maxIdleTicks;
+    private final int maxDurationTarget;
+    private final int laneCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private int idleTicks;
+
+    public LaneQueuingTask(Plugin plugin, int laneCapacity, OverflowPolicy overflowPolicy, int maxIdleTicks, int maxDurationTarget) {
+        super(plugin);
+        if (overflowPolicy != OverflowPolicy.DROP_NEWEST && overflowPolicy != OverflowPolicy.DROP_OLDEST) {
+            throw new IllegalArgumentException("Overflow policy " + overflowPolicy + " is not supported by lanes.");
+        }
+        this.laneCapacity = Math.max(1, laneCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.maxIdleTicks = maxIdleTicks;
+        this.maxDurationTarget = Math.max(0, Math.min(maxDurationTarget, DEFAULT_MAX_DURATION_TARGET));
+    }
+
+    public LaneQueuingTask(Plugin plugin, int laneCapacity, OverflowPolicy overflowPolicy) {
+        this(plugin, laneCapacity, overflowPolicy, DEFAULT_MAX_IDLE_TICKS, DEFAULT_MAX_DURATION_TARGET);
+    }
+
+    public LaneQueuingTask(Plugin plugin) {
+        this(plugin, DEFAULT_LANE_CAPACITY, OverflowPolicy.DROP_NEWEST);
+    }
+
+    /**
+     * handle one object which was polled from a lane
+     *
+     * @param lane   lane of the object
+     * @param object object from queue
+     */
+    public abstract void execute(K lane, T object);
+
+    /**
+     * Tick is executed once per tick.
+     */
+    public void tick() {
+    }
+
+    /**
+     * The time a lane may use per round. Override to weight lanes.
+     *
+     * @param lane lane
+     * @return quantum in nanoseconds
+     */
+    protected long quantum(K lane) {
+        return DEFAULT_QUANTUM;
+    }
+
+    /**
+     * Called when an object was dropped or rejected because its lane reached the capacity.
+     *
+     * @param lane   lane
+     * @param object dropped object
+     */
+    protected void dropped(K lane, T object) {
+    }
+
+    /**
+     * Schedule an object in a lane. This method is thread safe.
+     *
+     * @param lane   lane
+     * @param object object to queue
+     * @return true if the object was queued. False if it was rejected.
+     */
+    public final boolean schedule(K lane, T object) {
+        if (!isActive()) return false;
+        var accepted = new boolean[1];
+        // lanes are only created and removed within compute, so no object can be added to a removed lane.
+        lanes.compute(lane, (key, current) -> {
+            if (current == null) {
+                current = new Lane<>(key);
+                activations.offer(current);
+            }
+            accepted[0] = offer(current, object);
+            return current;
+        });
+        if (accepted[0] && !isRunning()) {
+            schedule();
+        }
+        return accepted[0];
+    }
+
+    @Override
+    public final void run() {
+        tick();
+        Lane<K, T> activated;
+        while ((activated = activations.poll()) != null) {
+            ring.addLast(activated);
+            idleTicks = 0;
+        }
+
+        if (!ring.isEmpty()) {
+            serve(Math.min(requestSlice(), TimeUnit.MILLISECONDS.toNanos(maxDurationTarget)));
+        }
+
+        if (ring.isEmpty() && activations.isEmpty()) {
+            idleTicks++;
+            if (idleTicks >= maxIdleTicks) {
+                idleTicks = 0;
+                cancel();
+                // A lane might have been created while we stopped.
+                if (!activations.isEmpty()) schedule();
+            }
+        }
+    }
+
+    /**
+     * Amount of queued objects in all lanes.
+     *
+     * @return queue depth
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Amount of queued objects in a lane.
+     *
+     * @param lane lane
+     * @return queue depth of the lane
+     */
+    public int size(K lane) {
+        var current = lanes.get(lane);
+        return current == null ? 0 : current.size.get();
+    }
+
+    /**
+     * Amount of lanes with queued objects.
+     *
+     * @return active lanes
+     */
+    public int lanes() {
+        return lanes.size();
+    }
+
+    /**
+     * Amount of objects which were rejected because their lane was full.
+     *
+     * @return rejected objects
+     */
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Amount of queued objects which were dropped to make room for new objects.
+     *
+     * @return dropped objects
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Statistics of the objects handled by this task.
+     *
+     * @return task statistics
+     */
+    public TaskStatistics statistics() {
+        return statistics;
+    }
+
+    @Override
+    public final void shutdown() {
+        super.shutdown();
+        for (var lane : lanes.values()) {
+            T object;
+            while ((object = lane.poll()) != null) {
+                size.decrementAndGet();
+                execute(lane.key, object);
+            }
+        }
+        lanes.clear();
+        activations.clear();
+    }
+
+    /**
+     * Clear all lanes and cancel the task. It can be scheduled again after this. This method is thread safe.
+     * <p>
+     * The round robin is only accessed by the thread owning the task. Cleared lanes are removed from it on the next run.
+     */
+    public void clear() {
+        for (var key : lanes.keySet()) {
+            // lanes are only removed within compute, so no object can be added to a cleared lane.
+            lanes.computeIfPresent(key, (k, lane) -> {
+                while (lane.poll() != null) {
+                    size.decrementAndGet();
+                }
+                return null;
+            });
+        }
+        super.cancel();
+    }
+
+    private boolean offer(Lane<K, T> lane, T object) {
+        if (lane.size.get() >= laneCapacity) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                rejected.increment();
+                dropped(lane.key, object);
+                return false;
+            }
+            var oldest = lane.poll();
+            if (oldest != null) {
+                size.decrementAndGet();
+                dropped.increment();
+                dropped(lane.key, oldest);
+            }
+        }
+        lane.offer(object);
+        size.incrementAndGet();
+        return true;
+    }
+
+    private void serve(long slice) {
+        var start = System.nanoTime();
+        var last = start;
+        var first = true;
+        while (!ring.isEmpty() && (first || last - start < slice)) {
+            var lane = ring.peekFirst();
+            if (lane.deficit <= 0) lane.deficit += quantum(lane.key);
+            T object;
+            // we always handle at least one object to avoid starvation when the tick is exhausted.
+            while (lane.deficit > 0 && (first || last - start < slice) && (object = lane.poll()) != null) {
+                first = false;
+                size.decrementAndGet();
+                execute(lane.key, object);
+                statistics.processElement();
+                var now = System.nanoTime();
+                statistics.recordElement(now - last);
+                lane.deficit -= now - last;
+                last = now;
+            }
+            if (lane.size.get() <= 0) {
+                ring.pollFirst();
+                lane.deficit = 0;
+                // objects might have been added since we checked the size
+                if (lanes.computeIfPresent(lane.key, (key, current) -> current == lane && current.size.get() <= 0 ? null : current) == lane) {
+                    ring.addLast(lane);
+                }
+            } else if (lane.deficit <= 0) {
+                ring.addLast(ring.pollFirst());
+            }
+        }
+        var duration = last - start;
+        consumed(duration);
+        statistics.recordSlice(duration);
+    }
+
+    private static final class Lane<K, T> {
+        private final K key;
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private long deficit;
+
+        private Lane(K key) {
+            this.key = key;
+        }
+
+        private void offer(T object) {
+            queue.offer(object);
+            size.incrementAndGet();
+        }
+
+        private T poll() {
+            var object = queue.poll();
+            if (object != null) size.decrementAndGet();
+            return object;
+        }
+    }
+}
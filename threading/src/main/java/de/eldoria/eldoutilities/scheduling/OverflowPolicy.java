@@ -0,0 +1,42 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+/**
+ * Defines how a bounded queue handles new objects once its capacity is reached.
+ * <p>
+ * Not every queue supports every policy. Unsupported policies are rejected when the queue is created.
+ *
+ * @since 2.2.0
+ */
+public enum OverflowPolicy {
+    /**
+     * The new object is dropped.
+     */
+    DROP_NEWEST,
+    /**
+     * The object at the head of the queue is dropped to make room for the new object.
+     * <p>
+     * For first in first out queues this is the oldest object. Queues with another order, like a priority queue,
+     * drop the object which would be handled next.
+     */
+    DROP_OLDEST,
+    /**
+     * The new object is handled directly when it is submitted on the main thread.
+     * Producers on other threads wait like with {@link #BLOCK}.
+     */
+    CALLER_RUNS,
+    /**
+     * Producers on other threads wait until there is room for the new object.
+     * The main thread can not wait for itself, so the object is dropped when it is submitted on the main thread.
+     */
+    BLOCK,
+    /**
+     * The new object is merged into an already queued object. The object is dropped if it can not be merged.
+     */
+    MERGE
+}
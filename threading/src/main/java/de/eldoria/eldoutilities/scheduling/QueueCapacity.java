@@ -0,0 +1,121 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tracks the amount of queued objects of a bounded queue.
+ */
+final class QueueCapacity {
+    private static final long WAIT_MILLIS = 50;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Object lock = new Object();
+
+    QueueCapacity(int capacity, OverflowPolicy policy) {
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+    }
+
+    OverflowPolicy policy() {
+        return policy;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Reserve room for one object if the capacity is not reached.
+     *
+     * @return true if room was reserved
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= capacity) return false;
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Reserve room for one object regardless of the capacity.
+     */
+    void acquire() {
+        size.incrementAndGet();
+    }
+
+    /**
+     * Wait until room for one object was reserved.
+     *
+     * @param active condition which has to be true while waiting
+     * @return true if room was reserved. False if the condition failed or the thread was interrupted.
+     */
+    boolean awaitAcquire(BooleanSupplier active) {
+        if (tryAcquire()) return true;
+        waiting.incrementAndGet();
+        try {
+            synchronized (lock) {
+                while (active.getAsBoolean()) {
+                    if (tryAcquire()) return true;
+                    // timed wait, so we never miss a release.
+                    lock.wait(WAIT_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+        return false;
+    }
+
+    /**
+     * Release the room of removed objects.
+     *
+     * @param amount amount of removed objects
+     */
+    void release(int amount) {
+        if (amount == 0) return;
+        size.addAndGet(-amount);
+        if (waiting.get() != 0) wakeUp();
+    }
+
+    void wakeUp() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    long rejectedCount() {
+        return rejected.sum();
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+}
@@ -7,27 +7,56 @@
 package de.eldoria.eldoutilities.scheduling;
 
 import de.eldoria.eldoutilities.threading.ReschedulingTask;
+import de.eldoria.eldoutilities.threading.TaskStatistics;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 
 import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
+/**
+ * A task which handles queued objects and schedules itself when it receives new objects.
+ * <p>
+ * The time used per tick is limited by the {@link de.eldoria.eldoutilities.threading.TickBudget} and the max duration target.
+ * <p>
+ * Objects can be scheduled from any thread. They are collected in a lock free inbox and moved into the queue on the main thread.
+ * <p>
+ * The queue can be bounded by a capacity. Once the capacity is reached the {@link OverflowPolicy} decides what happens to new objects.
+ * With {@link OverflowPolicy#DROP_OLDEST} the objects at the head of the queue are dropped once per tick, so the queue may exceed its capacity until the next tick.
+ * These are the oldest objects unless {@link #getQueueImplementation()} returns a queue with another order.
+ *
+ * @param <T> type of queued objects
+ */
 public abstract class QueuingSelfSchedulingTask<T> extends ReschedulingTask {
-    protected static final int DEFAULT_MAX_DURATION_TARGET = 50; // assuming 50ms = 1 tick
+    protected static final int DEFAULT_MAX_DURATION_TARGET = 50; // upper bound in ms. The actual slice is defined by the tick budget
     protected static final int DEFAULT_MAX_IDLE_TICKS = 200;
     private final Queue<T> tasks;
+    private final Queue<T> inbox = new ConcurrentLinkedQueue<>();
+    private final QueueCapacity capacity;
+    private final TaskStatistics statistics = new TaskStatistics();
     private final int maxIdleTicks;
     private final int maxDurationTarget;
     private int idleTicks;
 
-    public QueuingSelfSchedulingTask(Plugin plugin, int maxIdleTicks, int maxDurationTarget) {
+    public QueuingSelfSchedulingTask(Plugin plugin, int maxIdleTicks, int maxDurationTarget, int capacity, OverflowPolicy overflowPolicy) {
         super(plugin);
         tasks = getQueueImplementation();
+        this.capacity = new QueueCapacity(capacity, overflowPolicy);
         this.maxIdleTicks = maxIdleTicks;
         this.maxDurationTarget = Math.max(0, Math.min(maxDurationTarget, DEFAULT_MAX_DURATION_TARGET));
     }
 
+    public QueuingSelfSchedulingTask(Plugin plugin, int capacity, OverflowPolicy overflowPolicy) {
+        this(plugin, DEFAULT_MAX_IDLE_TICKS, DEFAULT_MAX_DURATION_TARGET, capacity, overflowPolicy);
+    }
+
+    public QueuingSelfSchedulingTask(Plugin plugin, int maxIdleTicks, int maxDurationTarget) {
+        this(plugin, maxIdleTicks, maxDurationTarget, Integer.MAX_VALUE, OverflowPolicy.DROP_NEWEST);
+    }
+
     public QueuingSelfSchedulingTask(Plugin plugin) {
         this(plugin, DEFAULT_MAX_IDLE_TICKS, DEFAULT_MAX_DURATION_TARGET);
     }
@@ -48,18 +77,38 @@ public abstract class QueuingSelfSchedulingTask<T> extends ReschedulingTask {
     @Override
     public final void run() {
         tick();
-        var start = System.currentTimeMillis();
-        long duration = 0;
-
-        while (!tasks.isEmpty() && proceed(tasks.peek()) && duration < maxDurationTarget) {
-            execute(tasks.poll());
-            duration = System.currentTimeMillis() - start;
+        if (drainInbox()) idleTicks = 0;
+        if (!tasks.isEmpty() && proceed(tasks.peek())) {
+            var slice = Math.min(requestSlice(), TimeUnit.MILLISECONDS.toNanos(maxDurationTarget));
+            var start = System.nanoTime();
+            var last = start;
+            long duration;
+            var handled = 0;
+            // we always handle at least one object to avoid starvation when the tick is exhausted.
+            do {
+                var object = tasks.poll();
+                handled++;
+                var enqueued = enqueuedAt(object);
+                if (enqueued >= 0) statistics.recordQueueWait(last - enqueued);
+                execute(object);
+                statistics.processElement();
+                var now = System.nanoTime();
+                statistics.recordElement(now - last);
+                last = now;
+                duration = now - start;
+            } while (!tasks.isEmpty() && proceed(tasks.peek()) && duration < slice);
+            capacity.release(handled);
+            consumed(duration);
+            statistics.recordSlice(duration);
         }
 
-        if (tasks.isEmpty()) {
+        if (isIdle()) {
             idleTicks++;
             if (idleTicks >= maxIdleTicks) {
+                idleTicks = 0;
                 cancel();
+                // An object might have been scheduled while we stopped.
+                if (!isIdle()) schedule();
             }
         }
     }
@@ -74,15 +123,151 @@ public abstract class QueuingSelfSchedulingTask<T> extends ReschedulingTask {
         return true;
     }
 
+    /**
+     * The {@link System#nanoTime()} when the object was added to the queue.
+     * <p>
+     * Override this method to record the queue wait time in the {@link #statistics()}.
+     *
+     * @param object object from queue
+     * @return the time when the object was queued or -1 if unknown
+     */
+    protected long enqueuedAt(T object) {
+        return -1;
+    }
+
+    /**
+     * Merge a new object into an already queued object. Used by {@link OverflowPolicy#MERGE}.
+     * <p>
+     * When the new object is scheduled from another thread than the main thread, only objects which were not yet moved
+     * into the queue are offered for merging. The queued object has to be thread safe in this case.
+     *
+     * @param queued   queued object
+     * @param incoming new object
+     * @return true if the new object was merged into the queued object
+     */
+    protected boolean merge(T queued, T incoming) {
+        return false;
+    }
+
+    /**
+     * Called when an object was dropped because the capacity was reached.
+     *
+     * @param object dropped object
+     */
+    protected void dropped(T object) {
+    }
+
+    /**
+     * Amount of queued objects.
+     *
+     * @return queue depth
+     */
+    public int queueDepth() {
+        return capacity.size();
+    }
+
+    /**
+     * Amount of new objects which were dropped, because the capacity was reached.
+     *
+     * @return rejected objects
+     */
+    public long rejected() {
+        return capacity.rejectedCount();
+    }
+
+    /**
+     * Amount of queued objects which were dropped to make room for new objects.
+     *
+     * @return dropped objects
+     */
+    public long dropped() {
+        return capacity.droppedCount();
+    }
+
+    /**
+     * Statistics of the objects handled by this task.
+     *
+     * @return task statistics
+     */
+    public TaskStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Checks if the task has no work left. The task will be cancelled after being idle for some ticks.
+     *
+     * @return true if the task is idle
+     */
+    protected boolean isIdle() {
+        return tasks.isEmpty() && inbox.isEmpty();
+    }
+
+    /**
+     * Called before the remaining objects are handled on shutdown.
+     * <p>
+     * Can be used to handle objects which are not part of the queue yet.
+     */
+    protected void beforeShutdown() {
+    }
+
+    /**
+     * Schedule an object. This method is thread safe.
+     * <p>
+     * Use {@link #trySchedule(Object)} to check whether the object was dropped.
+     *
+     * @param object object to queue
+     */
     protected final void schedule(T object) {
-        if (!isActive()) return;
-        tasks.add(object);
+        trySchedule(object);
+    }
+
+    /**
+     * Schedule an object. This method is thread safe.
+     *
+     * @param object object to queue
+     * @return true if the object was queued, merged or handled. False if it was dropped.
+     * @since 2.2.0
+     */
+    protected final boolean trySchedule(T object) {
+        if (!isActive()) return false;
+        if (!capacity.tryAcquire()) {
+            switch (capacity.policy()) {
+                case DROP_OLDEST -> capacity.acquire();
+                case CALLER_RUNS -> {
+                    if (getContext().isOwnedByCurrentThread()) {
+                        execute(object);
+                        statistics.processElement();
+                        return true;
+                    }
+                    if (!capacity.awaitAcquire(this::isActive)) return reject(object);
+                }
+                case BLOCK -> {
+                    // tick threads must never wait
+                    if (Bukkit.isPrimaryThread() || !capacity.awaitAcquire(this::isActive)) return reject(object);
+                }
+                case MERGE -> {
+                    return mergeQueued(object) || reject(object);
+                }
+                default -> {
+                    return reject(object);
+                }
+            }
+        }
+        inbox.offer(object);
         if (!isRunning()) {
             schedule();
         }
-        idleTicks = 0;
+        return true;
     }
 
+    /**
+     * Creates the queue of the task. The queue is only accessed by the thread owning the task.
+     * <p>
+     * {@link OverflowPolicy#DROP_OLDEST} drops the head of this queue. With a queue which is not first in first out,
+     * like a {@link java.util.PriorityQueue}, this is the object which would be handled next instead of the oldest one.
+     *
+     * @return new queue
+     */
     protected Queue<T> getQueueImplementation() {
         return new ArrayDeque<>();
     }
@@ -90,9 +275,14 @@ public abstract class QueuingSelfSchedulingTask<T> extends ReschedulingTask {
     @Override
     public final void shutdown() {
         super.shutdown();
+        // producers waiting for room will give up
+        capacity.wakeUp();
+        beforeShutdown();
+        drainInbox();
         for (var task : tasks) {
             execute(task);
         }
+        capacity.release(tasks.size());
         tasks.clear();
     }
 
@@ -100,16 +290,71 @@ public abstract class QueuingSelfSchedulingTask<T> extends ReschedulingTask {
      * Clear all the queued objects and cancel the task. It can be scheduled again after this.
      */
     public void clear() {
+        var removed = tasks.size();
+        while (inbox.poll() != null) {
+            removed++;
+        }
         tasks.clear();
+        capacity.release(removed);
         super.cancel();
     }
 
     protected boolean remove(T o) {
-        return tasks.remove(o);
+        if (inbox.remove(o) || tasks.remove(o)) {
+            capacity.release(1);
+            return true;
+        }
+        return false;
     }
 
     protected boolean removeIf(Predicate<? super T> filter) {
-        return tasks.removeIf(filter);
+        var removed = new int[1];
+        Predicate<T> counting = object -> {
+            if (!filter.test(object)) return false;
+            removed[0]++;
+            return true;
+        };
+        inbox.removeIf(counting);
+        tasks.removeIf(counting);
+        capacity.release(removed[0]);
+        return removed[0] != 0;
+    }
+
+    private boolean reject(T object) {
+        capacity.rejected();
+        dropped(object);
+        return false;
+    }
+
+    private boolean mergeQueued(T object) {
+        for (var queued : inbox) {
+            if (merge(queued, object)) return true;
+        }
+        // the queue is only accessed by the thread owning the task
+        if (getContext().isOwnedByCurrentThread()) {
+            for (var queued : tasks) {
+                if (merge(queued, object)) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean drainInbox() {
+        T object;
+        var drained = false;
+        while ((object = inbox.poll()) != null) {
+            tasks.add(object);
+            drained = true;
+        }
+        var dropped = 0;
+        while (capacity.policy() == OverflowPolicy.DROP_OLDEST && capacity.size() - dropped > capacity.capacity()
+               && (object = tasks.poll()) != null) {
+            dropped++;
+            capacity.dropped();
+            dropped(object);
+        }
+        capacity.release(dropped);
+        return drained;
     }
 
 }
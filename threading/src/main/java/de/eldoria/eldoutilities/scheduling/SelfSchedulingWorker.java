@@ -7,14 +7,26 @@
 package de.eldoria.eldoutilities.scheduling;
 
 import de.eldoria.eldoutilities.threading.ReschedulingTask;
+import de.eldoria.eldoutilities.threading.TaskStatistics;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.Plugin;
 
 import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * A self scheduling worker which will schedule itself when getting tasks.
  * <p>
  * Will unschedule itself if no tasks are left for some time.
+ * <p>
+ * Objects can be registered and unregistered from any thread. Changes are collected in a lock free inbox
+ * and applied on the main thread before the objects are handled.
+ * <p>
+ * The amount of registered objects can be bounded by a capacity. Once the capacity is reached the {@link OverflowPolicy} decides
+ * what happens to new objects. Only {@link OverflowPolicy#DROP_NEWEST}, {@link OverflowPolicy#DROP_OLDEST}
+ * and {@link OverflowPolicy#BLOCK} are supported. {@link OverflowPolicy#DROP_OLDEST} drops the first objects in the
+ * iteration order of the collection, which are only the oldest objects for ordered collections.
  *
  * @param <V> type of collection
  * @param <T> type of collection implementation
@@ -22,17 +34,29 @@ import java.util.Collection;
  */
 public abstract class SelfSchedulingWorker<V, T extends Collection<V>> extends ReschedulingTask {
     private final T tasks;
+    private final Queue<Change<V>> inbox = new ConcurrentLinkedQueue<>();
+    private final TaskStatistics statistics = new TaskStatistics();
+    private final QueueCapacity capacity;
+    private boolean handling;
     private int idleTicks;
     private int maxIdleTicks = 200;
 
-    public SelfSchedulingWorker(Plugin plugin, int maxIdleTicks) {
-        this(plugin);
+    public SelfSchedulingWorker(Plugin plugin, int maxIdleTicks, int capacity, OverflowPolicy overflowPolicy) {
+        super(plugin);
+        if (overflowPolicy == OverflowPolicy.CALLER_RUNS || overflowPolicy == OverflowPolicy.MERGE) {
+            throw new IllegalArgumentException("Overflow policy " + overflowPolicy + " is not supported by workers.");
+        }
+        tasks = getQueueImplementation();
+        this.capacity = new QueueCapacity(capacity, overflowPolicy);
         this.maxIdleTicks = maxIdleTicks;
     }
 
+    public SelfSchedulingWorker(Plugin plugin, int maxIdleTicks) {
+        this(plugin, maxIdleTicks, Integer.MAX_VALUE, OverflowPolicy.DROP_NEWEST);
+    }
+
     public SelfSchedulingWorker(Plugin plugin) {
-        super(plugin);
-        tasks = getQueueImplementation();
+        this(plugin, 200);
     }
 
     /**
@@ -50,40 +74,188 @@ public abstract class SelfSchedulingWorker<V, T extends Collection<V>> extends R
 
     @Override
     public final void run() {
+        if (applyChanges()) idleTicks = 0;
         if (!tasks.isEmpty()) {
+            var start = System.nanoTime();
             tick();
-            for (var task : tasks) {
-                execute(task);
+            var last = System.nanoTime();
+            handling = true;
+            try {
+                for (var task : tasks) {
+                    execute(task);
+                    statistics.processElement();
+                    var now = System.nanoTime();
+                    statistics.recordElement(now - last);
+                    last = now;
+                }
+            } finally {
+                handling = false;
             }
+            var duration = last - start;
+            // workers have to handle all objects, but the used time is reported to reduce the budget of other tasks.
+            consumed(duration);
+            statistics.recordSlice(duration);
         } else {
             idleTicks++;
             if (idleTicks >= maxIdleTicks) {
+                idleTicks = 0;
                 cancel();
+                // An object might have been registered while we stopped.
+                if (!inbox.isEmpty()) schedule();
             }
         }
     }
 
+    /**
+     * Register an object. This method is thread safe.
+     * <p>
+     * Use {@link #tryRegister(Object)} to check whether the object was dropped.
+     *
+     * @param object object to register
+     */
     protected final void register(V object) {
-        if (!isActive()) return;
-        tasks.add(object);
+        tryRegister(object);
+    }
+
+    /**
+     * Register an object. This method is thread safe.
+     *
+     * @param object object to register
+     * @return true if the object was registered. False if it was dropped.
+     * @since 2.2.0
+     */
+    protected final boolean tryRegister(V object) {
+        if (!isActive()) return false;
+        if (!capacity.tryAcquire()) {
+            switch (capacity.policy()) {
+                case DROP_OLDEST -> capacity.acquire();
+                case BLOCK -> {
+                    // tick threads must never wait
+                    if (Bukkit.isPrimaryThread() || !capacity.awaitAcquire(this::isActive)) return reject(object);
+                }
+                default -> {
+                    return reject(object);
+                }
+            }
+        }
+        inbox.offer(new Change<>(object, true));
         if (!isRunning()) {
             schedule();
         }
-        idleTicks = 0;
+        return true;
     }
 
+    /**
+     * Unregister an object. This method is thread safe.
+     * <p>
+     * When called on the thread owning the worker, the object is removed immediately.
+     * When called from another thread or while the worker handles its objects, the removal is deferred and the object
+     * is removed before the next tick of the worker. The object might be handled in the current tick in this case.
+     *
+     * @param object object to unregister
+     */
     public final void unregister(V object) {
-        tasks.remove(object);
+        if (!handling && getContext().isOwnedByCurrentThread()) {
+            // earlier changes are applied first to keep their order
+            applyChanges();
+            if (tasks.remove(object)) capacity.release(1);
+            return;
+        }
+        inbox.offer(new Change<>(object, false));
     }
 
     protected abstract T getQueueImplementation();
 
+    /**
+     * Called when an object was dropped because the capacity was reached.
+     *
+     * @param object dropped object
+     */
+    protected void dropped(V object) {
+    }
+
+    /**
+     * Amount of registered objects including objects which are not yet applied.
+     *
+     * @return queue depth
+     */
+    public int queueDepth() {
+        return capacity.size();
+    }
+
+    /**
+     * Amount of new objects which were dropped, because the capacity was reached.
+     *
+     * @return rejected objects
+     */
+    public long rejected() {
+        return capacity.rejectedCount();
+    }
+
+    /**
+     * Amount of registered objects which were dropped to make room for new objects.
+     *
+     * @return dropped objects
+     */
+    public long dropped() {
+        return capacity.droppedCount();
+    }
+
+    /**
+     * Statistics of the objects handled by this worker.
+     *
+     * @return task statistics
+     */
+    public TaskStatistics statistics() {
+        return statistics;
+    }
+
     @Override
     public final void shutdown() {
         super.shutdown();
+        // producers waiting for room will give up
+        capacity.wakeUp();
+        applyChanges();
         for (var task : tasks) {
             execute(task);
         }
+        capacity.release(tasks.size());
         tasks.clear();
     }
+
+    private boolean reject(V object) {
+        capacity.rejected();
+        dropped(object);
+        return false;
+    }
+
+    private boolean applyChanges() {
+        Change<V> change;
+        var changed = false;
+        var released = 0;
+        while ((change = inbox.poll()) != null) {
+            if (change.register()) {
+                // duplicates do not take any room
+                if (!tasks.add(change.object())) released++;
+            } else if (tasks.remove(change.object())) {
+                released++;
+            }
+            changed = true;
+        }
+        if (capacity.policy() == OverflowPolicy.DROP_OLDEST) {
+            var iterator = tasks.iterator();
+            while (capacity.size() - released > capacity.capacity() && iterator.hasNext()) {
+                var object = iterator.next();
+                iterator.remove();
+                released++;
+                capacity.dropped();
+                dropped(object);
+            }
+        }
+        capacity.release(released);
+        return changed;
+    }
+
+    private record Change<V>(V object, boolean register) {
+    }
 }
@@ -0,0 +1,248 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import java.util.function.Consumer;
+
+/**
+ * A hashed hierarchical timing wheel with a resolution of one tick.
+ * <p>
+ * Scheduling and cancelling a timeout is done in constant time.
+ * Timeouts are stored in wheels of 64 slots each. Timeouts which are further in the future are stored in a coarser wheel
+ * and moved to a finer wheel once their slot is reached.
+ * <p>
+ * This class is not thread safe.
+ *
+ * @param <T> type of scheduled values
+ * @since 2.2.0
+ */
+public final class TimingWheel<T> {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    /**
+     * The max delay which can be stored without rescheduling the timeout once its slot is reached.
+     */
+    public static final long MAX_DELAY = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private final Timeout<T>[] slots;
+    private long tick;
+    private int size;
+
+    /**
+     * Creates a new timing wheel starting at tick 0.
+     */
+    public TimingWheel() {
+        this(0);
+    }
+
+    /**
+     * Creates a new timing wheel.
+     *
+     * @param tick the current tick
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tick) {
+        this.tick = tick;
+        slots = new Timeout[LEVELS * WHEEL_SIZE];
+    }
+
+    /**
+     * Schedule a value, which will expire after the delay.
+     *
+     * @param value value to schedule
+     * @param delay delay in ticks. Delays smaller than one will be treated as one.
+     * @return a timeout which can be used to cancel the scheduled value
+     */
+    public Timeout<T> schedule(T value, long delay) {
+        var timeout = new Timeout<>(this, value, tick + Math.max(1, delay));
+        insert(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Advances the wheel by one tick.
+     *
+     * @param expired consumer which receives all values which expired in this tick
+     */
+    public void advance(Consumer<? super T> expired) {
+        tick++;
+        // Cascade the coarser wheels, starting with the coarsest one, when the finer wheel completed a round.
+        for (var level = LEVELS - 1; level > 0; level--) {
+            var shift = WHEEL_BITS * level;
+            if ((tick & ((1L << shift) - 1)) == 0) {
+                cascade(index(level, (int) ((tick >>> shift) & WHEEL_MASK)));
+            }
+        }
+
+        var index = index(0, (int) (tick & WHEEL_MASK));
+        var timeout = slots[index];
+        slots[index] = null;
+        while (timeout != null) {
+            var next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.expired = true;
+            size--;
+            expired.accept(timeout.value);
+            timeout = next;
+        }
+    }
+
+    /**
+     * Removes all pending timeouts.
+     *
+     * @param consumer consumer which receives all values which were pending
+     */
+    public void clear(Consumer<? super T> consumer) {
+        for (var index = 0; index < slots.length; index++) {
+            var timeout = slots[index];
+            slots[index] = null;
+            while (timeout != null) {
+                var next = timeout.next;
+                timeout.prev = null;
+                timeout.next = null;
+                timeout.cancelled = true;
+                consumer.accept(timeout.value);
+                timeout = next;
+            }
+        }
+        size = 0;
+    }
+
+    /**
+     * The current tick of the wheel.
+     *
+     * @return current tick
+     */
+    public long tick() {
+        return tick;
+    }
+
+    /**
+     * Amount of pending timeouts.
+     *
+     * @return amount of timeouts
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether there are pending timeouts.
+     *
+     * @return true if no timeout is pending
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void cascade(int index) {
+        var timeout = slots[index];
+        slots[index] = null;
+        while (timeout != null) {
+            var next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private void insert(Timeout<T> timeout) {
+        var delta = Math.max(0, timeout.deadline - tick);
+        var level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        // Timeouts which exceed the wheel are stored in the farthest slot and inserted again once the slot is reached.
+        var target = Math.min(timeout.deadline, tick + MAX_DELAY);
+        var index = index(level, (int) ((target >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+        timeout.index = index;
+        timeout.next = slots[index];
+        if (timeout.next != null) timeout.next.prev = timeout;
+        slots[index] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[timeout.index] = timeout.next;
+        }
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        size--;
+    }
+
+    private static int index(int level, int slot) {
+        return level * WHEEL_SIZE + slot;
+    }
+
+    /**
+     * A value scheduled in a {@link TimingWheel}.
+     *
+     * @param <T> type of value
+     */
+    public static final class Timeout<T> {
+        private final TimingWheel<T> wheel;
+        private final T value;
+        private final long deadline;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+        private int index;
+        private boolean expired;
+        private boolean cancelled;
+
+        private Timeout(TimingWheel<T> wheel, T value, long deadline) {
+            this.wheel = wheel;
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout. A cancelled timeout will not expire.
+         *
+         * @return true if the timeout was cancelled. False if it already expired or was cancelled before.
+         */
+        public boolean cancel() {
+            if (expired || cancelled) return false;
+            cancelled = true;
+            wheel.unlink(this);
+            return true;
+        }
+
+        /**
+         * The scheduled value.
+         *
+         * @return value
+         */
+        public T value() {
+            return value;
+        }
+
+        /**
+         * The tick when the timeout expires.
+         *
+         * @return tick of expiry
+         */
+        public long deadline() {
+            return deadline;
+        }
+
+        public boolean isExpired() {
+            return expired;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import de.eldoria.eldoutilities.threading.futures.PluginExecutors;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+
+/**
+ * A long-running task which iterates with a cursor and saves the cursor to a checkpoint file.
+ * <p>
+ * The cursor can be an index or a key. It is written periodically and when the task is shut down.
+ * The checkpoint is written to a temporary file first, which atomically replaces the previous checkpoint,
+ * so a crash never leaves a corrupted checkpoint behind.
+ * <p>
+ * When the task is started it resumes from the last checkpoint. Elements processed after the last checkpoint
+ * are processed again after a crash, so processing an element should be idempotent.
+ * A completed task is marked in the checkpoint and not started again until {@link #reset()} is called.
+ * <p>
+ * The time used per tick is limited by the {@link TickBudget}.
+ * <pre>{@code
+ *         var task = CheckpointedIteratingTask.indexed(plugin, plugin.getDataFolder().toPath().resolve("migration.checkpoint"),
+ *                 chunks.size(), index -> migrate(chunks.get((int) index)));
+ *         task.start();
+ * }</pre>
+ *
+ * @param <C> type of cursor
+ * @since 2.2.0
+ */
+public abstract class CheckpointedIteratingTask<C> extends ReschedulingTask {
+    protected static final int DEFAULT_CHECKPOINT_INTERVAL = 200;
+    private static final String CURSOR = "cursor";
+    private static final String PROCESSED = "processed";
+    private static final String COMPLETED = "completed";
+    private final Path checkpoint;
+    private final int checkpointInterval;
+    private final TaskStatistics statistics = new TaskStatistics();
+    private final AtomicLong sequence = new AtomicLong();
+    private final Object writeLock = new Object();
+    private long written;
+    private volatile C cursor;
+    private volatile long processed;
+    private volatile boolean completed;
+    private boolean loaded;
+    private long startedAt;
+    private int ticksSinceCheckpoint;
+
+    /**
+     * Creates a new checkpointed task.
+     *
+     * @param plugin             plugin which owns the task
+     * @param checkpoint         file the checkpoint is written to
+     * @param checkpointInterval interval in ticks between two checkpoints
+     */
+    public CheckpointedIteratingTask(Plugin plugin, Path checkpoint, int checkpointInterval) {
+        super(plugin);
+        this.checkpoint = checkpoint;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+    }
+
+    public CheckpointedIteratingTask(Plugin plugin, Path checkpoint) {
+        this(plugin, checkpoint, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Creates a task which iterates over the indices from 0 to total.
+     *
+     * @param plugin     plugin which owns the task
+     * @param checkpoint file the checkpoint is written to
+     * @param total      amount of indices
+     * @param processor  processor which handles an index
+     * @return new task
+     */
+    public static CheckpointedIteratingTask<Long> indexed(Plugin plugin, Path checkpoint, long total, LongConsumer processor) {
+        return new CheckpointedIteratingTask<>(plugin, checkpoint) {
+            @Override
+            protected Long initialCursor() {
+                return total > 0 ? 0L : null;
+            }
+
+            @Override
+            protected Long process(Long cursor) {
+                processor.accept(cursor);
+                return cursor + 1 < total ? cursor + 1 : null;
+            }
+
+            @Override
+            protected String serialize(Long cursor) {
+                return cursor.toString();
+            }
+
+            @Override
+            protected Long deserialize(String cursor) {
+                return Long.parseLong(cursor);
+            }
+
+            @Override
+            protected long total() {
+                return total;
+            }
+        };
+    }
+
+    /**
+     * The cursor of the first element.
+     *
+     * @return first cursor or null if there is nothing to process
+     */
+    protected abstract C initialCursor();
+
+    /**
+     * Process the element at the cursor.
+     *
+     * @param cursor cursor of the element
+     * @return cursor of the next element or null if all elements were processed
+     */
+    protected abstract C process(C cursor);
+
+    /**
+     * Convert a cursor into a string, which is written to the checkpoint.
+     *
+     * @param cursor cursor
+     * @return cursor as string
+     */
+    protected abstract String serialize(C cursor);
+
+    /**
+     * Read a cursor written by {@link #serialize(Object)}.
+     *
+     * @param cursor cursor as string
+     * @return cursor
+     */
+    protected abstract C deserialize(String cursor);
+
+    /**
+     * The total amount of elements. Used to calculate the progress.
+     *
+     * @return total amount of elements or -1 if unknown
+     */
+    protected long total() {
+        return -1;
+    }
+
+    /**
+     * Called on the task thread when all elements were processed.
+     *
+     * @param statistics statistics of the current run
+     */
+    protected void completed(TaskStatistics statistics) {
+    }
+
+    /**
+     * Starts the task. The task resumes from the last checkpoint if one exists.
+     *
+     * @return false if the task was already completed
+     */
+    public synchronized boolean start() {
+        if (!loaded) {
+            load();
+            loaded = true;
+        }
+        if (completed || !isActive()) return false;
+        if (startedAt == 0) startedAt = System.nanoTime();
+        schedule();
+        return true;
+    }
+
+    @Override
+    public final void run() {
+        var slice = requestSlice();
+        var start = System.nanoTime();
+        var last = start;
+        var current = cursor;
+        while (current != null && (last == start || last - start < slice)) {
+            current = process(current);
+            cursor = current;
+            processed++;
+            statistics.processElement();
+            var now = System.nanoTime();
+            statistics.recordElement(now - last);
+            last = now;
+        }
+        var duration = last - start;
+        consumed(duration);
+        statistics.recordSlice(duration);
+
+        if (current == null) {
+            super.shutdown();
+            // the task is marked as completed after the checkpoint was written, so a reset can not be overwritten
+            write(snapshot(true));
+            completed = true;
+            completed(statistics);
+            return;
+        }
+        if (++ticksSinceCheckpoint >= checkpointInterval) {
+            ticksSinceCheckpoint = 0;
+            var snapshot = snapshot(false);
+            PluginExecutors.of(getPlugin()).execute(() -> write(snapshot));
+        }
+    }
+
+    /**
+     * Shuts down the task and writes a checkpoint. The task can not be started again after this.
+     */
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        if (loaded && !completed) write(snapshot(false));
+    }
+
+    /**
+     * Deletes the checkpoint, so the next task starts from the beginning.
+     * The task has to be shut down or completed before.
+     */
+    public void reset() {
+        if (isRunning()) throw new IllegalStateException("The task is still running.");
+        synchronized (writeLock) {
+            written = sequence.incrementAndGet();
+            try {
+                Files.deleteIfExists(checkpoint);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete checkpoint " + checkpoint, e);
+            }
+        }
+    }
+
+    /**
+     * The current progress of the task.
+     *
+     * @return progress
+     */
+    public Progress progress() {
+        var elapsed = startedAt == 0 ? 0 : System.nanoTime() - startedAt;
+        // wall time is used, as the task only works during a part of each tick.
+        var throughput = elapsed == 0 ? 0 : statistics.getProcessedElements() / (elapsed / 1e9);
+        return new Progress(processed, completed ? processed : total(), throughput);
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Statistics of the current run. Elements processed before the task was resumed are not included.
+     *
+     * @return task statistics
+     */
+    public TaskStatistics statistics() {
+        return statistics;
+    }
+
+    private Snapshot snapshot(boolean completed) {
+        var current = cursor;
+        return new Snapshot(sequence.incrementAndGet(), current == null ? null : serialize(current), processed, completed);
+    }
+
+    private void load() {
+        if (!Files.exists(checkpoint)) {
+            cursor = initialCursor();
+            return;
+        }
+        var properties = new Properties();
+        try (var reader = new StringReader(Files.readString(checkpoint, StandardCharsets.UTF_8))) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read checkpoint " + checkpoint, e);
+        }
+        processed = Long.parseLong(properties.getProperty(PROCESSED, "0"));
+        completed = Boolean.parseBoolean(properties.getProperty(COMPLETED, "false"));
+        var value = properties.getProperty(CURSOR);
+        cursor = value == null ? null : deserialize(value);
+        if (cursor == null) completed = true;
+        if (!completed) getPlugin().getLogger().info("Resuming " + checkpoint.getFileName() + " after " + processed + " elements.");
+    }
+
+    private void write(Snapshot snapshot) {
+        var properties = new Properties();
+        if (snapshot.cursor() != null) properties.setProperty(CURSOR, snapshot.cursor());
+        properties.setProperty(PROCESSED, String.valueOf(snapshot.processed()));
+        properties.setProperty(COMPLETED, String.valueOf(snapshot.completed()));
+        synchronized (writeLock) {
+            // asynchronous writes might be executed out of order
+            if (snapshot.sequence() <= written) return;
+            try {
+                var content = new StringWriter();
+                properties.store(content, null);
+                Files.createDirectories(checkpoint.toAbsolutePath().getParent());
+                var temp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+                try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+                    channel.force(true);
+                }
+                try {
+                    Files.move(temp, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING);
+                }
+                written = snapshot.sequence();
+            } catch (IOException e) {
+                getPlugin().getLogger().log(Level.WARNING, "Could not write checkpoint " + checkpoint, e);
+            }
+        }
+    }
+
+    /**
+     * Progress of a checkpointed task.
+     *
+     * @param processed  elements processed, including elements processed before the task was resumed
+     * @param total      total amount of elements or -1 if unknown
+     * @param throughput processed elements per second in the current run
+     */
+    public record Progress(long processed, long total, double throughput) {
+        /**
+         * The share of processed elements.
+         *
+         * @return value between 0 and 1 or -1 if the total is unknown
+         */
+        public double fraction() {
+            if (total < 0) return -1;
+            if (total == 0) return 1;
+            return Math.min(1, (double) processed / total);
+        }
+
+        /**
+         * The estimated time until all elements are processed.
+         *
+         * @return estimated time or empty if the total or the throughput is unknown
+         */
+        public Optional<Duration> eta() {
+            if (total < 0 || throughput <= 0) return Optional.empty();
+            var remaining = Math.max(0, total - processed);
+            return Optional.of(Duration.ofMillis((long) (remaining / throughput * 1000)));
+        }
+    }
+
+    private record Snapshot(long sequence, String cursor, long processed, boolean completed) {
+    }
+}
@@ -6,6 +6,8 @@
 
 package de.eldoria.eldoutilities.threading;
 
+import de.eldoria.eldoutilities.threading.scheduler.ExecutionContext;
+import de.eldoria.eldoutilities.threading.scheduler.TaskHandle;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.Iterator;
@@ -13,7 +15,9 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
- * A task which iterates of a collection and cancels itself when done. *
+ * A task which iterates of a collection and cancels itself when done.
+ * <p>
+ * The time used per tick is limited by the {@link TickBudget}.
  * <pre>{@code
  *         IteratingTask<T> iteratingTask = new IteratingTask<>(collection, (e) ->
  *         {
@@ -36,12 +40,13 @@ import java.util.function.Predicate;
  * @since 1.0.0
  */
 public class IteratingTask<T> extends BukkitRunnable {
-    private static final int MAX_DURATION_TARGET = 50; // assuming 50ms = 1 tick
-
     private final Iterator<T> iterator;
     private final Predicate<T> processor;
     private final Consumer<TaskStatistics> statisticsConsumer;
     private final TaskStatistics statistics;
+    private final TaskPriority priority;
+    private boolean registered;
+    private TaskHandle handle;
 
     /**
      * Creates a new iterating task.
@@ -52,20 +57,41 @@ public class IteratingTask<T> extends BukkitRunnable {
      * @param statisticsConsumer consumer which will be executed after all elements were processed
      */
     public IteratingTask(Iterable<T> iterable, Predicate<T> processor, Consumer<TaskStatistics> statisticsConsumer) {
+        this(iterable, processor, statisticsConsumer, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Creates a new iterating task.
+     *
+     * @param iterable           iterable collection of elements of type {@link T}
+     * @param processor          processor to process each element. Returns {@code true} if the element was processed or
+     *                           {@code false} if it was skipped.
+     * @param statisticsConsumer consumer which will be executed after all elements were processed
+     * @param priority           priority of the task used to receive a share of the {@link TickBudget}
+     */
+    public IteratingTask(Iterable<T> iterable, Predicate<T> processor, Consumer<TaskStatistics> statisticsConsumer, TaskPriority priority) {
         this.iterator = iterable.iterator();
         this.processor = processor;
         this.statisticsConsumer = statisticsConsumer;
         this.statistics = new TaskStatistics();
+        this.priority = priority;
     }
 
     @Override
     public final void run() {
-        var start = System.currentTimeMillis();
-        long duration;
+        var budget = TickBudget.instance();
+        if (!registered) {
+            budget.register(null, this, priority);
+            registered = true;
+        }
+        var slice = budget.slice(this, priority);
+        var start = System.nanoTime();
+        var last = start;
+        long now;
         do {
             T next;
             if (!iterator.hasNext()) {
-                this.statistics.addTime(System.currentTimeMillis() - start);
+                finishSlice(budget, System.nanoTime() - start);
                 cancel();
                 this.statisticsConsumer.accept(this.statistics);
                 return;
@@ -74,7 +100,41 @@ public class IteratingTask<T> extends BukkitRunnable {
             if (this.processor.test(next)) {
                 this.statistics.processElement();
             }
-        } while ((duration = System.currentTimeMillis() - start) < MAX_DURATION_TARGET);
-        this.statistics.addTime(duration);
+            now = System.nanoTime();
+            this.statistics.recordElement(now - last);
+            last = now;
+        } while (now - start < slice);
+        finishSlice(budget, now - start);
+    }
+
+    private void finishSlice(TickBudget budget, long duration) {
+        budget.consume(duration);
+        this.statistics.recordSlice(duration);
+    }
+
+    /**
+     * Schedules this task in an {@link ExecutionContext}. Used instead of {@link #runTaskTimer(org.bukkit.plugin.Plugin, long, long)}
+     * to run the task on the thread owning a region on region threaded servers.
+     *
+     * @param context context to run the task in
+     * @param delay   delay in ticks before the first execution
+     * @param period  period in ticks between two executions
+     * @return handle of the task
+     */
+    public synchronized TaskHandle runTaskTimer(ExecutionContext context, long delay, long period) {
+        if (handle != null) throw new IllegalStateException("Already scheduled");
+        handle = context.runTimer(this, delay, period);
+        return handle;
+    }
+
+    @Override
+    public synchronized void cancel() throws IllegalStateException {
+        TickBudget.instance().unregister(this);
+        registered = false;
+        if (handle != null) {
+            handle.cancel();
+            return;
+        }
+        super.cancel();
     }
 }
@@ -0,0 +1,168 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations with nanosecond resolution and fixed memory usage.
+ * <p>
+ * Values are stored in logarithmic buckets. Each power of two is divided into eight linear sub buckets,
+ * which limits the error of a percentile to 12.5% of the value.
+ * <p>
+ * Recording values is thread safe and does not allocate.
+ *
+ * @since 2.2.0
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos duration in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts.incrementAndGet(index(nanos));
+        count.increment();
+        sum.add(nanos);
+        long current;
+        while (nanos > (current = max.get())) {
+            if (max.compareAndSet(current, nanos)) break;
+        }
+    }
+
+    /**
+     * Add all values of another histogram to this histogram.
+     *
+     * @param other other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (var i = 0; i < BUCKETS; i++) {
+            var value = other.counts.get(i);
+            if (value != 0) counts.addAndGet(i, value);
+        }
+        count.add(other.count.sum());
+        sum.add(other.sum.sum());
+        long current;
+        var otherMax = other.max.get();
+        while (otherMax > (current = max.get())) {
+            if (max.compareAndSet(current, otherMax)) break;
+        }
+    }
+
+    /**
+     * Amount of recorded values.
+     *
+     * @return amount of values
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * Sum of all recorded values.
+     *
+     * @return sum in nanoseconds
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * The mean of all recorded values.
+     *
+     * @return mean in nanoseconds
+     */
+    public long mean() {
+        var values = count.sum();
+        return values == 0 ? 0 : sum.sum() / values;
+    }
+
+    /**
+     * The largest recorded value.
+     *
+     * @return max in nanoseconds
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * The median of all recorded values.
+     *
+     * @return median in nanoseconds
+     */
+    public long p50() {
+        return percentile(50);
+    }
+
+    /**
+     * The 99th percentile of all recorded values.
+     *
+     * @return 99th percentile in nanoseconds
+     */
+    public long p99() {
+        return percentile(99);
+    }
+
+    /**
+     * Get the value at a percentile.
+     * <p>
+     * The value is the upper bound of the bucket which contains the percentile, but never more than the largest recorded value.
+     *
+     * @param percentile percentile between 0 and 100
+     * @return value in nanoseconds
+     */
+    public long percentile(double percentile) {
+        var total = count.sum();
+        if (total == 0) return 0;
+        var rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "count=%d p50=%s p99=%s max=%s".formatted(count(), Duration.ofNanos(p50()), Duration.ofNanos(p99()), Duration.ofNanos(max()));
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        var exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        var subBucket = index & SUB_BUCKET_MASK;
+        var width = 1L << (exponent - SUB_BUCKET_BITS);
+        var lower = (SUB_BUCKETS + subBucket) * width;
+        var upper = lower + width - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import de.eldoria.eldoutilities.threading.scheduler.ExecutionContext;
+import de.eldoria.eldoutilities.threading.scheduler.TaskHandle;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * A task which iterates over a collection in two phases and cancels itself when done.
+ * <p>
+ * The first phase computes a result for each element asynchronously. The elements are split via the
+ * {@link Spliterator} of the iterable and computed in parallel on an executor. The computation has to be a pure function,
+ * which does not access the world or any other state which is owned by the main thread.
+ * <p>
+ * The second phase applies the results on the main thread. Results are taken from a bounded queue, which blocks the
+ * computation when the main thread can not keep up. The time used per tick is limited by the {@link TickBudget}.
+ * <pre>{@code
+ *         ParallelIteratingTask<Block, Material> task = new ParallelIteratingTask<>(plugin, blocks,
+ *                 block -> computeNewType(block),
+ *                 material -> {
+ *                     applyType(material);
+ *                     return true;
+ *                 },
+ *                 stats -> plugin.getLogger().info(
+ *                         String.format("Computed %d elements in %dms and applied %d elements in %dms",
+ *                                 stats.getComputedElements(), stats.getComputeTime(),
+ *                                 stats.getProcessedElements(), stats.getTime())));
+ *
+ *         task.runTaskTimer(plugin, 5, 1);
+ * }</pre>
+ *
+ * @param <T> type of collection
+ * @param <R> type of computed results
+ * @since 2.2.0
+ */
+public class ParallelIteratingTask<T, R> extends BukkitRunnable {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final Plugin plugin;
+    private final Spliterator<T> spliterator;
+    private final Function<T, R> computation;
+    private final Predicate<R> commit;
+    private final Consumer<TaskStatistics> statisticsConsumer;
+    private final TaskStatistics statistics = new TaskStatistics();
+    private final Executor executor;
+    private final int parallelism;
+    private final TaskPriority priority;
+    private final BlockingQueue<R> results;
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final LongAdder computedElements = new LongAdder();
+    private final LongAdder computeTime = new LongAdder();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile boolean cancelled;
+    private boolean started;
+    private TaskHandle handle;
+
+    /**
+     * Creates a new parallel iterating task, which computes the results on the {@link ForkJoinPool#commonPool()}.
+     *
+     * @param plugin             plugin which owns the task
+     * @param iterable           iterable collection of elements of type {@link T}
+     * @param computation        pure function computing a result for each element. Returns {@code null} if the element should be skipped.
+     * @param commit             applies a computed result on the main thread. Returns {@code true} if the result was applied or
+     *                           {@code false} if it was skipped.
+     * @param statisticsConsumer consumer which will be executed after all elements were processed
+     */
+    public ParallelIteratingTask(Plugin plugin, Iterable<T> iterable, Function<T, R> computation, Predicate<R> commit,
+                                 Consumer<TaskStatistics> statisticsConsumer) {
+        this(plugin, iterable, computation, commit, statisticsConsumer, ForkJoinPool.commonPool(),
+                ForkJoinPool.getCommonPoolParallelism(), DEFAULT_QUEUE_CAPACITY, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Creates a new parallel iterating task.
+     *
+     * @param plugin             plugin which owns the task
+     * @param iterable           iterable collection of elements of type {@link T}
+     * @param computation        pure function computing a result for each element. Returns {@code null} if the element should be skipped.
+     * @param commit             applies a computed result on the main thread. Returns {@code true} if the result was applied or
+     *                           {@code false} if it was skipped.
+     * @param statisticsConsumer consumer which will be executed after all elements were processed
+     * @param executor           executor used for computation. This can be a fork join pool or a virtual thread executor.
+     * @param parallelism        amount of parts the iterable should be split into
+     * @param queueCapacity      max amount of results waiting to be applied
+     * @param priority           priority of the task used to receive a share of the {@link TickBudget}
+     */
+    public ParallelIteratingTask(Plugin plugin, Iterable<T> iterable, Function<T, R> computation, Predicate<R> commit,
+                                 Consumer<TaskStatistics> statisticsConsumer, Executor executor, int parallelism,
+                                 int queueCapacity, TaskPriority priority) {
+        this.plugin = plugin;
+        this.spliterator = iterable.spliterator();
+        this.computation = computation;
+        this.commit = commit;
+        this.statisticsConsumer = statisticsConsumer;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.results = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.priority = priority;
+    }
+
+    @Override
+    public final void run() {
+        var budget = TickBudget.instance();
+        if (!started) {
+            started = true;
+            budget.register(plugin, this, priority);
+            startComputation();
+        }
+
+        // Check the workers first. Once all workers are done no more results will be added.
+        var computing = runningWorkers.get() != 0;
+
+        var slice = budget.slice(this, priority);
+        var start = System.nanoTime();
+        var last = start;
+        long duration = 0;
+        R next;
+        while ((next = results.poll()) != null) {
+            if (commit.test(next)) {
+                statistics.processElement();
+            }
+            var now = System.nanoTime();
+            statistics.recordElement(now - last);
+            last = now;
+            duration = now - start;
+            if (duration >= slice) break;
+        }
+        budget.consume(duration);
+        if (duration != 0) statistics.recordSlice(duration);
+
+        var error = failure.get();
+        if (error != null) {
+            plugin.getLogger().log(Level.SEVERE, "Computation of parallel iterating task failed.", error);
+            finish();
+            return;
+        }
+
+        if (!computing && results.isEmpty()) {
+            finish();
+        }
+    }
+
+    /**
+     * Schedules this task in an {@link ExecutionContext}. Used instead of {@link #runTaskTimer(org.bukkit.plugin.Plugin, long, long)}
+     * to run the task on the thread owning a region on region threaded servers.
+     *
+     * @param context context to run the task in
+     * @param delay   delay in ticks before the first execution
+     * @param period  period in ticks between two executions
+     * @return handle of the task
+     */
+    public synchronized TaskHandle runTaskTimer(ExecutionContext context, long delay, long period) {
+        if (handle != null) throw new IllegalStateException("Already scheduled");
+        handle = context.runTimer(this, delay, period);
+        return handle;
+    }
+
+    @Override
+    public synchronized void cancel() throws IllegalStateException {
+        cancelled = true;
+        TickBudget.instance().unregister(this);
+        if (handle != null) {
+            handle.cancel();
+            return;
+        }
+        super.cancel();
+    }
+
+    private void finish() {
+        cancel();
+        statistics.addComputedElements(computedElements.intValue());
+        statistics.addComputeNanos(computeTime.sum());
+        statisticsConsumer.accept(statistics);
+    }
+
+    private void startComputation() {
+        List<Spliterator<T>> parts = new ArrayList<>();
+        parts.add(spliterator);
+        // Split the parts until we have enough parts or no part can be split anymore.
+        var splitted = true;
+        while (parts.size() < parallelism && splitted) {
+            splitted = false;
+            for (var i = parts.size() - 1; i >= 0 && parts.size() < parallelism; i--) {
+                var split = parts.get(i).trySplit();
+                if (split != null) {
+                    parts.add(split);
+                    splitted = true;
+                }
+            }
+        }
+
+        runningWorkers.set(parts.size());
+        for (var part : parts) {
+            try {
+                executor.execute(() -> compute(part));
+            } catch (RejectedExecutionException e) {
+                // The part will never be computed. Stop the started workers and report the failure in the next run.
+                failure.compareAndSet(null, e);
+                cancelled = true;
+                runningWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    private void compute(Spliterator<T> part) {
+        var start = System.nanoTime();
+        try {
+            while (!cancelled && part.tryAdvance(this::compute)) {
+                computedElements.increment();
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            cancelled = true;
+        } finally {
+            computeTime.add(System.nanoTime() - start);
+            runningWorkers.decrementAndGet();
+        }
+    }
+
+    private void compute(T element) {
+        var result = computation.apply(element);
+        if (result == null) return;
+        try {
+            offer(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    private void offer(R result) throws InterruptedException {
+        if (results.offer(result)) return;
+        // Let the fork join pool compensate for the blocked thread while the main thread catches up.
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean done;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                while (!done && !cancelled) {
+                    done = results.offer(result, 50, TimeUnit.MILLISECONDS);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return done || cancelled || (done = results.offer(result));
+            }
+        });
+    }
+}
@@ -6,37 +6,71 @@
 
 package de.eldoria.eldoutilities.threading;
 
+import de.eldoria.eldoutilities.threading.scheduler.ExecutionContext;
+import de.eldoria.eldoutilities.threading.scheduler.TaskHandle;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A task which runs every tick while it is scheduled.
+ * <p>
+ * Starting, stopping and shutting down the task is thread safe. The state is changed atomically,
+ * so the task is never scheduled twice, even when {@link #schedule()} is called by several threads at once.
+ * <p>
+ * The task is tracked by the {@link TaskScope} of its plugin and shut down when the scope is closed.
+ * <p>
+ * The task runs in the global {@link ExecutionContext} unless another context is provided.
+ * On region threaded servers a region context can be used to run the task on the thread owning the region.
+ */
 public abstract class ReschedulingTask {
     private final Plugin plugin;
-    private BukkitRunnable task;
-    private boolean active = true;
+    private final TaskScope scope;
+    private final ExecutionContext context;
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+    private volatile TaskHandle task;
 
-    public ReschedulingTask(Plugin plugin) {
+    public ReschedulingTask(Plugin plugin, ExecutionContext context) {
         this.plugin = plugin;
+        this.context = context;
+        scope = TaskScope.of(plugin);
+        scope.track(this);
+    }
+
+    public ReschedulingTask(Plugin plugin) {
+        this(plugin, TaskSchedulers.of(plugin).global());
     }
 
     /**
      * Schedules the task if it is not running.
      */
     public void schedule() {
-        if (!isActive()) return;
-        if (!isRunning()) {
-            task = new InternalTask(this::run);
-            task.runTaskTimer(plugin, 0, 1);
-            plugin.getLogger().fine(getClass().getSimpleName() + " of " + plugin.getName() + " started.");
+        if (!state.compareAndSet(State.IDLE, State.STARTING)) return;
+        try {
+            // The schedulers are thread safe, so the task can be started from any thread.
+            task = context.runTimer(this::run, 0, 1);
+        } catch (RuntimeException e) {
+            state.compareAndSet(State.STARTING, State.IDLE);
+            throw e;
         }
+        // Region threads have their own budget, which registers the task on its first slice.
+        if (!TaskSchedulers.isRegionized()) TickBudget.instance().register(plugin, this, priority());
+        if (!state.compareAndSet(State.STARTING, State.RUNNING)) {
+            // shut down while starting
+            stop();
+            return;
+        }
+        plugin.getLogger().fine(getClass().getSimpleName() + " of " + plugin.getName() + " started.");
     }
 
     /**
      * Cancel the task if it is running.
      */
     public void cancel() {
-        if (isRunning()) {
-            task.cancel();
-            task = null;
+        awaitStart();
+        if (state.compareAndSet(State.RUNNING, State.IDLE)) {
+            stop();
             plugin.getLogger().fine(getClass().getSimpleName() + " of " + plugin.getName() + " paused.");
         }
     }
@@ -45,7 +79,12 @@ public abstract class ReschedulingTask {
      * Shuts down the scheduler. It can be not scheduled again after this.
      */
     public void shutdown() {
-        active = false;
+        // a task which is currently starting is stopped by the starting thread.
+        if (state.getAndSet(State.SHUTDOWN) == State.RUNNING) {
+            stop();
+        }
+        TickBudget.instance().unregister(this);
+        scope.untrack(this);
     }
 
     /**
@@ -54,7 +93,8 @@ public abstract class ReschedulingTask {
      * @return true if the task is running
      */
     public boolean isRunning() {
-        return task != null;
+        var current = state.get();
+        return current == State.RUNNING || current == State.STARTING;
     }
 
     /**
@@ -65,25 +105,68 @@ public abstract class ReschedulingTask {
      * @return true if active
      */
     public boolean isActive() {
-        return active;
+        return state.get() != State.SHUTDOWN;
     }
 
     public abstract void run();
 
+    /**
+     * The priority of this task. The priority defines the share of the {@link TickBudget} this task receives.
+     *
+     * @return priority of the task
+     */
+    protected TaskPriority priority() {
+        return TaskPriority.NORMAL;
+    }
+
+    /**
+     * Request a slice of the current tick from the {@link TickBudget}.
+     * <p>
+     * The used time has to be reported via {@link #consumed(long)}.
+     *
+     * @return slice in nanoseconds
+     */
+    protected long requestSlice() {
+        return TickBudget.instance().slice(this, priority());
+    }
+
+    /**
+     * Report the time used in the current tick to the {@link TickBudget}.
+     *
+     * @param nanos used time in nanoseconds
+     */
+    protected void consumed(long nanos) {
+        TickBudget.instance().consume(nanos);
+    }
+
     public Plugin getPlugin() {
         return plugin;
     }
 
-    private static class InternalTask extends BukkitRunnable {
-        private final Runnable runnable;
+    /**
+     * The context the task is executed in.
+     *
+     * @return execution context
+     */
+    public ExecutionContext getContext() {
+        return context;
+    }
 
-        public InternalTask(Runnable runnable) {
-            this.runnable = runnable;
-        }
+    private void stop() {
+        var current = task;
+        task = null;
+        if (current != null) current.cancel();
+        TickBudget.instance().unregister(this);
+    }
 
-        @Override
-        public void run() {
-            runnable.run();
+    private void awaitStart() {
+        // starting only takes the time to register the task at the scheduler.
+        while (state.get() == State.STARTING) {
+            Thread.onSpinWait();
         }
     }
+
+    private enum State {
+        IDLE, STARTING, RUNNING, SHUTDOWN
+    }
 }
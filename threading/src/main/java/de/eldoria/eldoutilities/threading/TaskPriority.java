@@ -0,0 +1,36 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+/**
+ * Priority of a task registered at the {@link TickBudget}.
+ * <p>
+ * The weight of a priority defines how much of the remaining tick time a task receives compared to other tasks.
+ *
+ * @since 2.2.0
+ */
+public enum TaskPriority {
+    LOW(1),
+    NORMAL(2),
+    HIGH(4),
+    CRITICAL(8);
+
+    private final int weight;
+
+    TaskPriority(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * Weight of the priority.
+     *
+     * @return weight
+     */
+    public int weight() {
+        return weight;
+    }
+}
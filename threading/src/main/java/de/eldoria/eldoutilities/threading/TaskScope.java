@@ -0,0 +1,240 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import de.eldoria.eldoutilities.threading.futures.BukkitFutureResult;
+import de.eldoria.eldoutilities.threading.futures.MainThreadDispatcher;
+import de.eldoria.eldoutilities.threading.futures.PluginExecutors;
+import org.bukkit.plugin.Plugin;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Tracks the asynchronous work of a plugin, so it can be stopped when the plugin gets disabled.
+ * <p>
+ * The scope tracks futures, executors and every {@link ReschedulingTask} of the plugin.
+ * Futures created via {@link de.eldoria.eldoutilities.threading.futures.CompletableBukkitFuture} with a plugin
+ * are tracked automatically.
+ * <p>
+ * When the scope is closed, rescheduling tasks are shut down, executors stop accepting tasks and the scope waits
+ * for the remaining work within a bounded time. Work which is still running afterward is cancelled and reported.
+ *
+ * @since 2.2.0
+ */
+public final class TaskScope {
+    private static final Map<Class<? extends Plugin>, TaskScope> SCOPES = new ConcurrentHashMap<>();
+    private final Plugin plugin;
+    private final Map<CompletableFuture<?>, String> futures = new ConcurrentHashMap<>();
+    private final Map<ExecutorService, String> executors = new ConcurrentHashMap<>();
+    private final Set<ReschedulingTask> tasks = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private TaskScope(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Get the scope of a plugin.
+     *
+     * @param plugin plugin
+     * @return scope of the plugin
+     */
+    public static TaskScope of(Plugin plugin) {
+        return SCOPES.computeIfAbsent(plugin.getClass(), key -> new TaskScope(plugin));
+    }
+
+    /**
+     * Supply a value asynchronously on the executor of the plugin and track the future.
+     *
+     * @param supplier supplier
+     * @param timeout  time after which the future fails with a {@link TimeoutException}
+     * @param <T>      type of value
+     * @return future result
+     */
+    public <T> BukkitFutureResult<T> supplyAsync(Supplier<T> supplier, Duration timeout) {
+        return BukkitFutureResult.of(track(CompletableFuture.supplyAsync(supplier, PluginExecutors.of(plugin)), timeout));
+    }
+
+    /**
+     * Track a future.
+     *
+     * @param future future
+     * @param <T>    type of future
+     * @return the same future
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        return track("future", future);
+    }
+
+    /**
+     * Track a future, which fails with a {@link TimeoutException} when it is not completed within the timeout.
+     *
+     * @param future  future
+     * @param timeout timeout of the future
+     * @param <T>     type of future
+     * @return the same future
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future, Duration timeout) {
+        return track(future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Track a future. The name is used to report the future if it does not complete when the scope is closed.
+     *
+     * @param name   name of the future
+     * @param future future
+     * @param <T>    type of future
+     * @return the same future
+     */
+    public <T> CompletableFuture<T> track(String name, CompletableFuture<T> future) {
+        ensureOpen();
+        if (future.isDone()) return future;
+        futures.put(future, name);
+        future.whenComplete((result, throwable) -> futures.remove(future));
+        return future;
+    }
+
+    /**
+     * Track an executor. The executor will be shut down when the scope is closed.
+     *
+     * @param name     name of the executor
+     * @param executor executor
+     * @param <E>      type of executor
+     * @return the same executor
+     */
+    public <E extends ExecutorService> E track(String name, E executor) {
+        ensureOpen();
+        executors.put(executor, name);
+        return executor;
+    }
+
+    /**
+     * Track a task. The task is shut down when the scope is closed.
+     * <p>
+     * Every {@link ReschedulingTask} is tracked automatically.
+     *
+     * @param task task
+     */
+    public void track(ReschedulingTask task) {
+        if (closed) return;
+        tasks.add(task);
+    }
+
+    /**
+     * Stop tracking a task.
+     *
+     * @param task task
+     */
+    public void untrack(ReschedulingTask task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * Amount of futures which are not completed yet.
+     *
+     * @return pending futures
+     */
+    public int pendingFutures() {
+        return futures.size();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the scope.
+     * <p>
+     * Tracked tasks are shut down and tracked executors stop accepting tasks.
+     * Afterward the scope waits up to the timeout for running futures and executors.
+     * Everything still running after the timeout is cancelled and reported.
+     * <p>
+     * This method has to be called on the main thread. The scope of the plugin can not be used after it was closed.
+     * A new scope is created when {@link #of(Plugin)} is called again.
+     *
+     * @param timeout max time to wait for running work
+     * @return descriptions of the work which did not complete within the timeout
+     */
+    public List<String> close(Duration timeout) {
+        closed = true;
+        SCOPES.remove(plugin.getClass(), this);
+        var deadline = System.nanoTime() + timeout.toNanos();
+
+        for (var task : List.copyOf(tasks)) {
+            try {
+                task.shutdown();
+            } catch (Throwable e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to shut down " + task.getClass().getName(), e);
+            }
+        }
+        tasks.clear();
+        MainThreadDispatcher.shutdown(plugin);
+        executors.keySet().forEach(ExecutorService::shutdown);
+
+        List<String> stragglers = new ArrayList<>();
+        var pending = Map.copyOf(futures);
+        try {
+            CompletableFuture.allOf(pending.keySet().toArray(CompletableFuture[]::new))
+                    .get(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // failed futures are done and timed out futures are handled below.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (var entry : pending.entrySet()) {
+            if (entry.getKey().isDone()) continue;
+            entry.getKey().cancel(true);
+            stragglers.add(entry.getValue());
+        }
+        futures.clear();
+
+        for (var entry : executors.entrySet()) {
+            var executor = entry.getKey();
+            try {
+                if (executor.awaitTermination(remaining(deadline), TimeUnit.NANOSECONDS)) continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            var unstarted = executor.shutdownNow();
+            stragglers.add("%s (%d not started)".formatted(entry.getValue(), unstarted.size()));
+        }
+        executors.clear();
+
+        var unstarted = PluginExecutors.shutdown(plugin, Duration.ofNanos(remaining(deadline)));
+        if (!unstarted.isEmpty()) {
+            stragglers.add("plugin executor (%d not started)".formatted(unstarted.size()));
+        }
+
+        if (!stragglers.isEmpty()) {
+            plugin.getLogger().warning("Cancelled " + stragglers.size() + " tasks which did not complete within "
+                                       + timeout.toMillis() + " ms: " + String.join(", ", stragglers));
+        }
+        return stragglers;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("The task scope of " + plugin.getName() + " is already closed.");
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+}
@@ -6,28 +6,137 @@
 
 package de.eldoria.eldoutilities.threading;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * Statistics used in {@link IteratingTask}.
+ * Statistics used in {@link IteratingTask} and {@link ParallelIteratingTask}.
+ * <p>
+ * The processed elements and time refer to the work done on the main thread.
+ * The computed elements and compute time refer to the work done asynchronously by a {@link ParallelIteratingTask}.
+ * Times are summed up in nanoseconds, so the short slices of a tick do not get lost by rounding.
+ * <p>
+ * Additionally, the statistics contain histograms of the time per element, the time per tick and the time objects waited in a queue.
  *
  * @since 1.0.0
  */
 public class TaskStatistics {
+    private final LatencyHistogram elementTimes = new LatencyHistogram();
+    private final LatencyHistogram sliceTimes = new LatencyHistogram();
+    private final LatencyHistogram queueWaitTimes = new LatencyHistogram();
     private int processedElements;
-    private long time;
+    private long timeNanos;
+    private int computedElements;
+    private long computeNanos;
 
     public void processElement() {
         this.processedElements++;
     }
 
+    /**
+     * Add time spent on the main thread.
+     *
+     * @param time time in milliseconds
+     */
     public void addTime(long time) {
-        this.time += time;
+        this.timeNanos += TimeUnit.MILLISECONDS.toNanos(time);
+    }
+
+    /**
+     * Record the time used to handle a single element.
+     *
+     * @param nanos time in nanoseconds
+     */
+    public void recordElement(long nanos) {
+        elementTimes.record(nanos);
+    }
+
+    /**
+     * Record the time used in a single tick. The time is added to the {@link #getTime() total time}.
+     *
+     * @param nanos time in nanoseconds
+     */
+    public void recordSlice(long nanos) {
+        sliceTimes.record(nanos);
+        timeNanos += nanos;
+    }
+
+    /**
+     * Record the time an element waited in a queue before it was handled.
+     *
+     * @param nanos time in nanoseconds
+     */
+    public void recordQueueWait(long nanos) {
+        queueWaitTimes.record(nanos);
+    }
+
+    public void addComputedElements(int computedElements) {
+        this.computedElements += computedElements;
+    }
+
+    /**
+     * Add time spent on asynchronous computation.
+     *
+     * @param nanos time in nanoseconds
+     */
+    public void addComputeNanos(long nanos) {
+        this.computeNanos += nanos;
     }
 
     public int getProcessedElements() {
         return processedElements;
     }
 
+    /**
+     * Time in milliseconds spent on the main thread.
+     *
+     * @return time in milliseconds
+     */
     public long getTime() {
-        return time;
+        return TimeUnit.NANOSECONDS.toMillis(timeNanos);
+    }
+
+    /**
+     * Amount of elements which were computed asynchronously.
+     *
+     * @return computed elements
+     */
+    public int getComputedElements() {
+        return computedElements;
+    }
+
+    /**
+     * Time in milliseconds spent on asynchronous computation, summed up over all threads.
+     *
+     * @return compute time in milliseconds
+     */
+    public long getComputeTime() {
+        return TimeUnit.NANOSECONDS.toMillis(computeNanos);
+    }
+
+    /**
+     * Histogram of the time used per element.
+     *
+     * @return element time histogram
+     */
+    public LatencyHistogram elementTimes() {
+        return elementTimes;
+    }
+
+    /**
+     * Histogram of the time used per tick.
+     *
+     * @return slice time histogram
+     */
+    public LatencyHistogram sliceTimes() {
+        return sliceTimes;
+    }
+
+    /**
+     * Histogram of the time elements waited in the queue before they were handled.
+     *
+     * @return queue wait histogram
+     */
+    public LatencyHistogram queueWaitTimes() {
+        return queueWaitTimes;
     }
-}
\ No newline at end of file
+}
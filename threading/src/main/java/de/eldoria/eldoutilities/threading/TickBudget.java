@@ -0,0 +1,285 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import com.destroystokyo.paper.event.server.ServerTickEndEvent;
+import com.destroystokyo.paper.event.server.ServerTickStartEvent;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates the time which tasks are allowed to use on the main thread per tick.
+ * <p>
+ * Every {@link ReschedulingTask} and {@link IteratingTask} registers itself at the budget while it is running.
+ * Instead of using a fixed duration per tick each task requests a slice of the time which is left in the current tick.
+ * Slices are weighted by the {@link TaskPriority} of the tasks, which were active in the previous tick.
+ * <p>
+ * The time left in a tick is estimated based on the time the server required for the last ticks.
+ * On paper servers the tick start and end events are used to measure the tick duration.
+ * On other servers a new tick is detected when a task requests a slice for the second time and the server load is
+ * derived from the time between two ticks.
+ * <p>
+ * The budget is shared by all tasks on the server and should only be accessed from the main thread.
+ * On region threaded servers every region thread has its own budget.
+ *
+ * @since 2.2.0
+ */
+public final class TickBudget {
+    /**
+     * Duration of a tick in nanoseconds, assuming 20 ticks per second.
+     */
+    public static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long DEFAULT_MAX_TICK_BUDGET = TimeUnit.MILLISECONDS.toNanos(25);
+    private static final long DEFAULT_RESERVE = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final boolean PAPER_TICK_EVENTS = classExists("com.destroystokyo.paper.event.server.ServerTickStartEvent");
+    private static final TickBudget INSTANCE = new TickBudget();
+    private static final ThreadLocal<TickBudget> REGION_BUDGETS = ThreadLocal.withInitial(TickBudget::new);
+    /**
+     * Participants which did not request a slice for this amount of ticks are removed.
+     */
+    private static final long STALE_TICKS = 1200;
+
+    private final Map<Object, Participant> participants = new ConcurrentHashMap<>();
+    private long maxTickBudget = DEFAULT_MAX_TICK_BUDGET;
+    private long reserve = DEFAULT_RESERVE;
+    private long tick;
+    private long tickStart = System.nanoTime();
+    private long consumed;
+    private long serverWork;
+    private boolean paperTicks;
+    private Plugin listenerOwner;
+
+    TickBudget() {
+    }
+
+    /**
+     * Get the budget of the current tick thread.
+     * <p>
+     * This is the budget of the server unless the server is region threaded.
+     *
+     * @return budget instance
+     */
+    public static TickBudget instance() {
+        return TaskSchedulers.isRegionized() ? REGION_BUDGETS.get() : INSTANCE;
+    }
+
+    /**
+     * Set the maximum time all tasks together are allowed to use per tick.
+     *
+     * @param maxTickBudget maximum budget per tick
+     */
+    public void maxTickBudget(Duration maxTickBudget) {
+        this.maxTickBudget = Math.max(0, Math.min(maxTickBudget.toNanos(), TICK_NANOS));
+    }
+
+    /**
+     * Set the time which should always be left over for the server in each tick.
+     *
+     * @param reserve reserved time per tick
+     */
+    public void reserve(Duration reserve) {
+        this.reserve = Math.max(0, Math.min(reserve.toNanos(), TICK_NANOS));
+    }
+
+    /**
+     * Register a task at the budget. Registering an already registered task will update its priority.
+     *
+     * @param plugin   plugin which owns the task. Used to register the paper tick listener if required.
+     * @param task     task to register
+     * @param priority priority of the task
+     */
+    public void register(@Nullable Plugin plugin, Object task, TaskPriority priority) {
+        participants.compute(task, (key, participant) -> {
+            if (participant == null) return new Participant(priority.weight());
+            participant.weight = priority.weight();
+            return participant;
+        });
+        if (plugin != null) registerTickListener(plugin);
+    }
+
+    /**
+     * Unregister a task from the budget.
+     *
+     * @param task task to unregister
+     */
+    public void unregister(Object task) {
+        participants.remove(task);
+    }
+
+    /**
+     * Request a slice of the remaining time in the current tick.
+     * <p>
+     * The slice is calculated by the priority of the task in relation to the other tasks which did not receive a slice in this tick yet.
+     * The time used by the task has to be reported via {@link #consume(long)} afterward.
+     * <p>
+     * Tasks which are not registered will be registered with {@link TaskPriority#NORMAL}.
+     *
+     * @param task task requesting the slice
+     * @return the slice in nanoseconds. Might be 0 if no time is left in the current tick.
+     */
+    public long slice(Object task) {
+        return slice(task, TaskPriority.NORMAL);
+    }
+
+    /**
+     * Request a slice of the remaining time in the current tick.
+     * <p>
+     * Tasks which are not registered will be registered with the given priority.
+     *
+     * @param task     task requesting the slice
+     * @param priority priority used when the task is not registered yet
+     * @return the slice in nanoseconds. Might be 0 if no time is left in the current tick.
+     * @see #slice(Object)
+     */
+    public long slice(Object task, TaskPriority priority) {
+        var participant = participants.computeIfAbsent(task, key -> new Participant(priority.weight()));
+        if (!paperTicks && participant.servedTick == tick) {
+            // The task was already served in this tick, so a new tick has started.
+            // Ticks are started by the tick start event on paper servers instead.
+            startTick(System.nanoTime());
+        }
+        participant.servedTick = tick;
+
+        long remaining = remaining();
+        if (remaining <= 0) return 0;
+
+        long pendingWeight = participant.weight;
+        for (var iterator = participants.values().iterator(); iterator.hasNext(); ) {
+            var other = iterator.next();
+            // Tasks which were active in the last tick and did not receive a slice yet.
+            if (other != participant && other.servedTick == tick - 1) {
+                pendingWeight += other.weight;
+            }
+            // Tasks which were unregistered by another thread are never removed otherwise.
+            if (other.servedTick >= 0 && tick - other.servedTick > STALE_TICKS) {
+                iterator.remove();
+            }
+        }
+        return remaining * participant.weight / pendingWeight;
+    }
+
+    /**
+     * Report the time used in the current tick.
+     *
+     * @param nanos used time in nanoseconds
+     */
+    public void consume(long nanos) {
+        consumed += Math.max(0, nanos);
+    }
+
+    /**
+     * Time left in the current tick for all tasks together.
+     *
+     * @return remaining time in nanoseconds
+     */
+    public long remaining() {
+        long available = Math.min(maxTickBudget, TICK_NANOS - reserve - serverWork);
+        return Math.max(0, available - consumed);
+    }
+
+    /**
+     * Estimated time the server requires per tick without the tasks coordinated by this budget.
+     *
+     * @return time in nanoseconds
+     */
+    public long serverWork() {
+        return serverWork;
+    }
+
+    /**
+     * The time used by tasks in the current tick.
+     *
+     * @return time in nanoseconds
+     */
+    public long consumed() {
+        return consumed;
+    }
+
+    private void startTick(long now) {
+        if (!paperTicks) {
+            var interval = now - tickStart;
+            if (interval > TICK_NANOS) {
+                // The server had no time to sleep, so everything we did not use was used by the server.
+                serverWork = average(serverWork, interval - consumed);
+            } else {
+                // The server is keeping up. We slowly release the estimated load.
+                serverWork = average(serverWork, 0);
+            }
+        }
+        tick++;
+        tickStart = now;
+        consumed = 0;
+    }
+
+    /**
+     * Starts a new tick. Called by the tick start event of paper.
+     */
+    void paperTickStart() {
+        paperTicks = true;
+        startTick(System.nanoTime());
+    }
+
+    private void endTick(long tickDuration) {
+        serverWork = average(serverWork, tickDuration - consumed);
+    }
+
+    private static long average(long current, long sample) {
+        return Math.max(0, current + (Math.max(0, sample) - current) / 8);
+    }
+
+    private void registerTickListener(Plugin plugin) {
+        if (listenerOwner != null && listenerOwner.isEnabled()) return;
+        if (!PAPER_TICK_EVENTS) return;
+        listenerOwner = plugin;
+        plugin.getServer().getPluginManager().registerEvents(new PaperTickListener(this), plugin);
+    }
+
+    private static boolean classExists(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static class Participant {
+        private int weight;
+        private long servedTick = -1;
+
+        private Participant(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static class PaperTickListener implements Listener {
+        private final TickBudget budget;
+
+        private PaperTickListener(TickBudget budget) {
+            this.budget = budget;
+        }
+
+        @EventHandler(priority = EventPriority.LOWEST)
+        public void onTickStart(ServerTickStartEvent event) {
+            budget.paperTickStart();
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onTickEnd(ServerTickEndEvent event) {
+            budget.endTick((long) (event.getTickDuration() * 1_000_000));
+        }
+    }
+}
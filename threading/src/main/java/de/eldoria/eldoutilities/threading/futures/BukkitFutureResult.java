@@ -13,7 +13,6 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.logging.Level;
@@ -42,8 +41,8 @@ public class BukkitFutureResult<T> implements FutureResult<T> {
 
     @Override
     public void whenComplete(@NotNull Plugin plugin, @NotNull Consumer<? super T> callback, Consumer<Throwable> throwableConsumer) {
-        var executor = (Executor) r -> plugin.getServer().getScheduler().runTask(plugin, r);
-        this.future.thenAcceptAsync(callback, executor).exceptionally(throwable -> {
+        // Callbacks are collected and executed by one task per plugin instead of registering a task per callback.
+        this.future.thenAcceptAsync(callback, MainThreadDispatcher.of(plugin)).exceptionally(throwable -> {
             throwableConsumer.accept(throwable);
             return null;
         });
@@ -6,13 +6,26 @@
 
 package de.eldoria.eldoutilities.threading.futures;
 
+import de.eldoria.eldoutilities.threading.TaskScope;
+import org.bukkit.plugin.Plugin;
+
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 
+/**
+ * Factory for {@link BukkitFutureResult}s.
+ * <p>
+ * Futures without an explicit executor are executed by the {@link PluginExecutor} of the plugin.
+ * Futures created with a plugin are tracked by the {@link TaskScope} of the plugin.
+ */
 public class CompletableBukkitFuture {
     public static <T> BukkitFutureResult<T> supplyAsync(Supplier<T> supplier) {
-        return BukkitFutureResult.of(CompletableFuture.supplyAsync(supplier));
+        return supplyAsync(supplier, PluginExecutors.defaultExecutor());
+    }
+
+    public static <T> BukkitFutureResult<T> supplyAsync(Plugin plugin, Supplier<T> supplier) {
+        return BukkitFutureResult.of(TaskScope.of(plugin).track(CompletableFuture.supplyAsync(supplier, PluginExecutors.of(plugin))));
     }
 
     public static <T> BukkitFutureResult<T> supplyAsync(Supplier<T> supplier, Executor executor) {
@@ -20,7 +33,11 @@ public class CompletableBukkitFuture {
     }
 
     public static BukkitFutureResult<Void> runAsync(Runnable supplier) {
-        return BukkitFutureResult.of(CompletableFuture.runAsync(supplier));
+        return runAsync(supplier, PluginExecutors.defaultExecutor());
+    }
+
+    public static BukkitFutureResult<Void> runAsync(Plugin plugin, Runnable supplier) {
+        return BukkitFutureResult.of(TaskScope.of(plugin).track(CompletableFuture.runAsync(supplier, PluginExecutors.of(plugin))));
     }
 
     public static BukkitFutureResult<Void> runAsync(Runnable supplier, Executor executor) {
@@ -0,0 +1,62 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+/**
+ * Settings of a {@link PluginExecutor}.
+ *
+ * @param virtualThreads true if virtual threads should be used. Ignored when the runtime does not support virtual threads.
+ * @param threads        amount of platform threads. Only used when no virtual threads are used.
+ * @param queueCapacity  max amount of tasks waiting for a platform thread. Further tasks will be rejected.
+ * @since 2.2.0
+ */
+public record ExecutorSettings(boolean virtualThreads, int threads, int queueCapacity) {
+    public ExecutorSettings {
+        threads = Math.max(1, threads);
+        queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Settings using virtual threads if available or a bounded platform pool with one thread per core otherwise.
+     *
+     * @return default settings
+     */
+    public static ExecutorSettings defaults() {
+        return new ExecutorSettings(true, Math.max(2, Runtime.getRuntime().availableProcessors()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Settings using virtual threads if available or a bounded platform pool otherwise.
+     *
+     * @param fallbackThreads amount of platform threads used when virtual threads are not available
+     * @return settings
+     */
+    public static ExecutorSettings virtualThreads(int fallbackThreads) {
+        return new ExecutorSettings(true, fallbackThreads, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Settings using a bounded pool of platform threads.
+     *
+     * @param threads amount of threads
+     * @return settings
+     */
+    public static ExecutorSettings platform(int threads) {
+        return new ExecutorSettings(false, threads, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Settings using a bounded pool of platform threads with a bounded queue.
+     *
+     * @param threads       amount of threads
+     * @param queueCapacity max amount of waiting tasks
+     * @return settings
+     */
+    public static ExecutorSettings platform(int threads, int queueCapacity) {
+        return new ExecutorSettings(false, threads, queueCapacity);
+    }
+}
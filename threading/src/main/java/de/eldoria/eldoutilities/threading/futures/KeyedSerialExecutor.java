@@ -0,0 +1,143 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Executes tasks sequentially per key, while tasks of different keys run in parallel.
+ * <p>
+ * Tasks of a key are chained onto the last submitted task of the key and executed by a shared executor.
+ * No thread or lock is held per key. A key is removed once its last task is done, so idle keys do not use any memory.
+ * <p>
+ * A failing task does not affect the following tasks of the same key. The returned futures only mirror the tasks.
+ * Cancelling a future skips its task if it did not start yet, but the next task of the key still waits until a running
+ * task is done.
+ * <p>
+ * Executors created for a plugin track their pending tasks in the {@link TaskScope} of the plugin.
+ * Tasks which did not start before the scope is closed are cancelled and not executed.
+ *
+ * @param <K> type of key, for example a {@link java.util.UUID}
+ * @since 2.2.0
+ */
+public final class KeyedSerialExecutor<K> {
+    private final Map<K, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+    private final Executor executor;
+    @Nullable
+    private final Plugin plugin;
+
+    /**
+     * Creates a new executor.
+     *
+     * @param executor executor used to run the tasks
+     */
+    public KeyedSerialExecutor(Executor executor) {
+        this(executor, null);
+    }
+
+    private KeyedSerialExecutor(Executor executor, @Nullable Plugin plugin) {
+        this.executor = executor;
+        this.plugin = plugin;
+    }
+
+    /**
+     * Creates a new executor using the {@link PluginExecutor} of the plugin.
+     * The tasks are tracked by the {@link TaskScope} of the plugin.
+     *
+     * @param plugin plugin
+     * @param <K>    type of key
+     * @return new executor
+     */
+    public static <K> KeyedSerialExecutor<K> create(Plugin plugin) {
+        return new KeyedSerialExecutor<>(PluginExecutors.of(plugin), plugin);
+    }
+
+    /**
+     * Creates a new executor using the {@link PluginExecutors#defaultExecutor()}.
+     *
+     * @param <K> type of key
+     * @return new executor
+     */
+    public static <K> KeyedSerialExecutor<K> create() {
+        return new KeyedSerialExecutor<>(PluginExecutors.defaultExecutor());
+    }
+
+    /**
+     * Supply a value after all previously submitted tasks of the key are done.
+     *
+     * @param key      key
+     * @param supplier supplier
+     * @param <T>      type of value
+     * @return future result of the supplier
+     */
+    public <T> BukkitFutureResult<T> supplyAsync(K key, Supplier<T> supplier) {
+        var result = new CompletableFuture<T>();
+        if (plugin != null) TaskScope.of(plugin).track("keyed task " + key, result);
+        Supplier<T> task = () -> {
+            // cancelled by the caller or the closed scope before the task started
+            if (result.isDone()) throw new CancellationException();
+            return supplier.get();
+        };
+        // the chain is never exposed, so it only completes once the task is actually done
+        @SuppressWarnings("unchecked")
+        var next = (CompletableFuture<T>) tails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.supplyAsync(task, executor)
+                : tail.handleAsync((value, throwable) -> task.get(), executor));
+        // Registered outside of compute, as the future might already be completed.
+        next.whenComplete((value, throwable) -> {
+            tails.remove(key, next);
+            if (throwable == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(throwable);
+            }
+        });
+        return BukkitFutureResult.of(result);
+    }
+
+    /**
+     * Run a task after all previously submitted tasks of the key are done.
+     *
+     * @param key      key
+     * @param runnable task
+     * @return future result of the task
+     */
+    public BukkitFutureResult<Void> runAsync(K key, Runnable runnable) {
+        return supplyAsync(key, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Amount of keys with pending or running tasks.
+     *
+     * @return active keys
+     */
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    /**
+     * Checks whether a key has pending or running tasks.
+     *
+     * @param key key
+     * @return true if the key is active
+     */
+    public boolean isActive(K key) {
+        return tails.containsKey(key);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import de.eldoria.eldoutilities.threading.scheduler.TaskHandle;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Executes callbacks on the main thread with a single repeating task per plugin.
+ * <p>
+ * Callbacks can be submitted from any thread and are collected in a lock free queue.
+ * Once per tick the queue is drained on the main thread. This avoids registering a task at the scheduler for every callback.
+ * <p>
+ * The dispatcher stops its task after being idle for some ticks and starts it again when new callbacks are submitted.
+ * On region threaded servers callbacks are executed in the global context.
+ * <p>
+ * Once the dispatcher was shut down it rejects further callbacks with a {@link RejectedExecutionException}.
+ * Plugins which are not enabled receive a dispatcher which is already shut down.
+ *
+ * @since 2.2.0
+ */
+public final class MainThreadDispatcher implements Executor {
+    private static final Map<Class<? extends Plugin>, MainThreadDispatcher> DISPATCHERS = new ConcurrentHashMap<>();
+    private static final int DEFAULT_MAX_IDLE_TICKS = 200;
+    private final Plugin plugin;
+    private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile long maxTickDuration;
+    private volatile int maxIdleTicks = DEFAULT_MAX_IDLE_TICKS;
+    private volatile TaskHandle task;
+    private volatile boolean shutdown;
+    private int idleTicks;
+
+    private MainThreadDispatcher(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Get the dispatcher of a plugin.
+     *
+     * @param plugin plugin
+     * @return dispatcher of the plugin
+     */
+    public static MainThreadDispatcher of(Plugin plugin) {
+        var dispatcher = DISPATCHERS.get(plugin.getClass());
+        if (dispatcher != null) return dispatcher;
+        if (!plugin.isEnabled()) {
+            // a disabled plugin can not schedule tasks
+            dispatcher = new MainThreadDispatcher(plugin);
+            dispatcher.shutdown = true;
+            return dispatcher;
+        }
+        return DISPATCHERS.computeIfAbsent(plugin.getClass(), key -> new MainThreadDispatcher(plugin));
+    }
+
+    /**
+     * Stops the dispatcher of a plugin and executes the pending callbacks. The dispatcher rejects callbacks afterward.
+     * <p>
+     * This method has to be called on the main thread.
+     *
+     * @param plugin plugin
+     */
+    public static void shutdown(Plugin plugin) {
+        var dispatcher = DISPATCHERS.remove(plugin.getClass());
+        if (dispatcher == null) return;
+        dispatcher.shutdown = true;
+        var current = dispatcher.task;
+        if (current != null) current.cancel();
+        dispatcher.task = null;
+        dispatcher.running.set(false);
+        dispatcher.maxTickDuration = 0;
+        dispatcher.drain();
+    }
+
+    /**
+     * Set the max time the dispatcher is allowed to use per tick. Remaining callbacks will be executed in the next tick.
+     *
+     * @param maxTickDuration max duration per tick or {@link Duration#ZERO} to execute all callbacks in the same tick.
+     * @return this instance
+     */
+    public MainThreadDispatcher maxTickDuration(Duration maxTickDuration) {
+        this.maxTickDuration = Math.max(0, maxTickDuration.toNanos());
+        return this;
+    }
+
+    /**
+     * Set the amount of idle ticks after which the dispatcher stops its task.
+     *
+     * @param maxIdleTicks idle ticks
+     * @return this instance
+     */
+    MainThreadDispatcher maxIdleTicks(int maxIdleTicks) {
+        this.maxIdleTicks = Math.max(1, maxIdleTicks);
+        return this;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        ensureActive();
+        inbox.offer(command);
+        // the dispatcher might have been shut down after the pending callbacks were executed
+        if (shutdown && inbox.remove(command)) ensureActive();
+        if (!running.get() && running.compareAndSet(false, true)) {
+            start();
+        }
+    }
+
+    /**
+     * Amount of callbacks waiting for execution.
+     *
+     * @return pending callbacks
+     */
+    public int pending() {
+        return inbox.size();
+    }
+
+    /**
+     * Checks whether the task of the dispatcher is running.
+     *
+     * @return true if the task is running
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Checks whether the dispatcher was shut down and rejects callbacks.
+     *
+     * @return true if the dispatcher is shut down
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    private void ensureActive() {
+        if (shutdown) {
+            throw new RejectedExecutionException("The main thread dispatcher of " + plugin.getName() + " is shut down.");
+        }
+    }
+
+    private void start() {
+        if (shutdown) {
+            running.set(false);
+            return;
+        }
+        TaskHandle handle;
+        try {
+            // The scheduler is thread safe, so we can start the task from any thread.
+            handle = TaskSchedulers.of(plugin).global().runTimer(this::drain, 0, 1);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        task = handle;
+        // shut down while the timer was scheduled
+        if (shutdown) handle.cancel();
+    }
+
+    private void drain() {
+        var budget = maxTickDuration;
+        var deadline = budget == 0 ? Long.MAX_VALUE : System.nanoTime() + budget;
+        Runnable next;
+        var handled = false;
+        while ((next = inbox.poll()) != null) {
+            handled = true;
+            try {
+                next.run();
+            } catch (Throwable e) {
+                plugin.getLogger().log(Level.SEVERE, "Exception in main thread callback", e);
+            }
+            if (budget != 0 && System.nanoTime() >= deadline) break;
+        }
+
+        if (handled) {
+            idleTicks = 0;
+            return;
+        }
+
+        if (++idleTicks < maxIdleTicks) return;
+        var current = task;
+        // the handle is assigned after the timer was scheduled, so the first runs might not see it yet
+        if (current == null) return;
+        idleTicks = 0;
+        task = null;
+        current.cancel();
+        running.set(false);
+        // A callback might have been submitted while we stopped.
+        if (!inbox.isEmpty() && running.compareAndSet(false, true)) {
+            start();
+        }
+    }
+}
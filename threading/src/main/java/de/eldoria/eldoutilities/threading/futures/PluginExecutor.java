@@ -0,0 +1,179 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An executor owned by a single plugin.
+ * <p>
+ * Runs tasks on virtual threads when the runtime supports them and on a bounded pool of platform threads otherwise.
+ * The executor tracks the amount of queued and active tasks.
+ *
+ * @since 2.2.0
+ */
+public final class PluginExecutor implements Executor {
+    private static final boolean VIRTUAL_THREADS = Runtime.version().feature() >= 21;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+
+    private PluginExecutor(ExecutorService executor, boolean virtual) {
+        this.executor = executor;
+        this.virtual = virtual;
+    }
+
+    /**
+     * Creates a new executor.
+     *
+     * @param name     name used for the threads of the executor
+     * @param settings settings of the executor
+     * @return new executor
+     */
+    public static PluginExecutor create(String name, ExecutorSettings settings) {
+        if (settings.virtualThreads() && VIRTUAL_THREADS) {
+            var executor = virtualThreadExecutor(name);
+            if (executor != null) return new PluginExecutor(executor, true);
+        }
+        var threadCount = new AtomicInteger();
+        var pool = new ThreadPoolExecutor(settings.threads(), settings.threads(), 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(settings.queueCapacity()), r -> {
+            var thread = new Thread(r, name + "-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return new PluginExecutor(pool, false);
+    }
+
+    /**
+     * Checks whether the runtime supports virtual threads.
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREADS;
+    }
+
+    @Override
+    public void execute(@NotNull Runnable command) {
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Amount of tasks which were submitted but did not start yet.
+     *
+     * @return queue depth
+     */
+    public int queueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Amount of tasks which are currently running.
+     *
+     * @return active tasks
+     */
+    public int activeTasks() {
+        return active.get();
+    }
+
+    /**
+     * Amount of tasks which were completed.
+     *
+     * @return completed tasks
+     */
+    public long completedTasks() {
+        return completed.sum();
+    }
+
+    /**
+     * Checks whether this executor uses virtual threads.
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Stops accepting new tasks. Queued and running tasks are still executed.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Shuts down the executor. Running tasks are allowed to finish within the timeout. Afterward they will be interrupted.
+     *
+     * @param timeout time to wait for running tasks
+     * @return tasks which never started
+     */
+    public List<Runnable> shutdown(Duration timeout) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return List.of();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return executor.shutdownNow();
+    }
+
+    public boolean isShutdown() {
+        return executor.isShutdown();
+    }
+
+    @Nullable
+    private static ExecutorService virtualThreadExecutor(String name) {
+        // Virtual threads are only available on java 21 and newer, while we compile against java 17.
+        try {
+            var builderClass = Class.forName("java.lang.Thread$Builder");
+            var builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-virtual-", 0L);
+            var factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException |
+                 InvocationTargetException e) {
+            return null;
+        }
+    }
+}
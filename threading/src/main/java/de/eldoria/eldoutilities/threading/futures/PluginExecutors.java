@@ -0,0 +1,90 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import de.eldoria.EldoUtilities;
+import org.bukkit.plugin.Plugin;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Registry of the {@link PluginExecutor} of each plugin.
+ * <p>
+ * Futures created via {@link CompletableBukkitFuture} use the executor of the plugin instead of the {@link ForkJoinPool#commonPool()},
+ * which is shared by all plugins on the server.
+ * <p>
+ * Executors are created lazily with {@link ExecutorSettings#defaults()} unless configured via {@link #configure(Plugin, ExecutorSettings)}.
+ *
+ * @since 2.2.0
+ */
+public final class PluginExecutors {
+    private static final Map<Class<? extends Plugin>, PluginExecutor> EXECUTORS = new ConcurrentHashMap<>();
+    private static final Map<Class<? extends Plugin>, ExecutorSettings> SETTINGS = new ConcurrentHashMap<>();
+
+    private PluginExecutors() {
+    }
+
+    /**
+     * Configure the executor of a plugin. An already existing executor stops accepting new tasks and shuts down
+     * after its queued and running tasks are done. New tasks are executed by an executor with the new settings.
+     *
+     * @param plugin   plugin
+     * @param settings executor settings
+     */
+    public static void configure(Plugin plugin, ExecutorSettings settings) {
+        SETTINGS.put(plugin.getClass(), settings);
+        var previous = EXECUTORS.remove(plugin.getClass());
+        if (previous != null) {
+            // queued tasks have to run, otherwise their futures would never complete
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Get the executor of a plugin.
+     *
+     * @param plugin plugin
+     * @return executor of the plugin
+     */
+    public static PluginExecutor of(Plugin plugin) {
+        return EXECUTORS.computeIfAbsent(plugin.getClass(), key ->
+                PluginExecutor.create(plugin.getName(), SETTINGS.getOrDefault(key, ExecutorSettings.defaults())));
+    }
+
+    /**
+     * Get the executor of the instance owner. Falls back to the {@link ForkJoinPool#commonPool()} if no instance owner is set.
+     *
+     * @return default executor
+     */
+    public static Executor defaultExecutor() {
+        Plugin owner;
+        try {
+            owner = EldoUtilities.getInstanceOwner();
+        } catch (IllegalStateException e) {
+            return ForkJoinPool.commonPool();
+        }
+        return of(owner);
+    }
+
+    /**
+     * Shuts down the executor of a plugin.
+     *
+     * @param plugin  plugin
+     * @param timeout time to wait for running tasks
+     * @return tasks which never started
+     */
+    public static List<Runnable> shutdown(Plugin plugin, Duration timeout) {
+        var executor = EXECUTORS.remove(plugin.getClass());
+        if (executor == null) return List.of();
+        return executor.shutdown(timeout);
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.ratelimit;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Base of rate limiters which track the state of each key in an open addressing table.
+ * <p>
+ * The table is split into segments, which are locked independently. The state of a key is stored in primitive arrays,
+ * so acquiring permits does not allocate, unless a segment has to grow.
+ * Keys are removed lazily once their state is the same as the state of an unknown key.
+ * <p>
+ * The limiter uses a clock with arbitrary units. Intervals are defined in the unit of the clock.
+ * Use {@link System#nanoTime()} for time based limits or the current server tick for tick based limits.
+ * <p>
+ * All methods are thread safe.
+ *
+ * @since 2.2.0
+ */
+public abstract class RateLimiter {
+    private static final int SEGMENTS = 16;
+    private static final int INITIAL_SLOTS = 16;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongSupplier clock;
+    private final int stride;
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param clock  clock providing the current time
+     * @param stride amount of long values stored per key
+     */
+    protected RateLimiter(LongSupplier clock, int stride) {
+        this.clock = clock;
+        this.stride = stride;
+        for (var i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(INITIAL_SLOTS, stride);
+        }
+    }
+
+    /**
+     * Creates a token bucket limiter using {@link System#nanoTime()}.
+     *
+     * @param capacity max amount of tokens
+     * @param tokens   tokens added per duration
+     * @param per      duration in which the tokens are added
+     * @return new limiter
+     */
+    public static TokenBucketLimiter tokenBucket(long capacity, long tokens, Duration per) {
+        return new TokenBucketLimiter(capacity, tokens, per.toNanos(), System::nanoTime);
+    }
+
+    /**
+     * Creates a token bucket limiter.
+     *
+     * @param capacity max amount of tokens
+     * @param tokens   tokens added per interval
+     * @param interval interval in the unit of the clock
+     * @param clock    clock providing the current time
+     * @return new limiter
+     */
+    public static TokenBucketLimiter tokenBucket(long capacity, long tokens, long interval, LongSupplier clock) {
+        return new TokenBucketLimiter(capacity, tokens, interval, clock);
+    }
+
+    /**
+     * Creates a sliding window limiter using {@link System#nanoTime()}.
+     *
+     * @param limit  max amount of permits per window
+     * @param window length of the window
+     * @return new limiter
+     */
+    public static SlidingWindowLimiter slidingWindow(long limit, Duration window) {
+        return new SlidingWindowLimiter(limit, window.toNanos(), System::nanoTime);
+    }
+
+    /**
+     * Creates a sliding window limiter.
+     *
+     * @param limit  max amount of permits per window
+     * @param window length of the window in the unit of the clock
+     * @param clock  clock providing the current time
+     * @return new limiter
+     */
+    public static SlidingWindowLimiter slidingWindow(long limit, long window, LongSupplier clock) {
+        return new SlidingWindowLimiter(limit, window, clock);
+    }
+
+    /**
+     * Try to acquire one permit for a key.
+     *
+     * @param key key
+     * @return true if the permit was acquired
+     */
+    public boolean tryAcquire(UUID key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * Try to acquire permits for a key. Either all or no permits are acquired.
+     *
+     * @param key     key
+     * @param permits amount of permits
+     * @return true if the permits were acquired
+     */
+    public boolean tryAcquire(UUID key, int permits) {
+        return acquire(key.getMostSignificantBits(), key.getLeastSignificantBits(), null, permits);
+    }
+
+    /**
+     * Try to acquire one permit for a key.
+     *
+     * @param key key
+     * @return true if the permit was acquired
+     */
+    public boolean tryAcquire(String key) {
+        return tryAcquire(key, 1);
+    }
+
+    /**
+     * Try to acquire permits for a key. Either all or no permits are acquired.
+     *
+     * @param key     key
+     * @param permits amount of permits
+     * @return true if the permits were acquired
+     */
+    public boolean tryAcquire(String key, int permits) {
+        return acquire(key.hashCode(), 0, key, permits);
+    }
+
+    /**
+     * Forget the state of a key.
+     *
+     * @param key key
+     */
+    public void reset(UUID key) {
+        remove(key.getMostSignificantBits(), key.getLeastSignificantBits(), null);
+    }
+
+    /**
+     * Forget the state of a key.
+     *
+     * @param key key
+     */
+    public void reset(String key) {
+        remove(key.hashCode(), 0, key);
+    }
+
+    /**
+     * Amount of tracked keys. Includes idle keys which were not removed yet.
+     *
+     * @return tracked keys
+     */
+    public int size() {
+        var size = 0;
+        for (var segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Initialize the state of a new key.
+     *
+     * @param state state array
+     * @param index index of the first value of the key
+     * @param now   current time
+     */
+    protected abstract void init(long[] state, int index, long now);
+
+    /**
+     * Try to acquire permits and update the state of a key.
+     *
+     * @param state   state array
+     * @param index   index of the first value of the key
+     * @param now     current time
+     * @param permits amount of permits
+     * @return true if the permits were acquired
+     */
+    protected abstract boolean acquire(long[] state, int index, long now, int permits);
+
+    /**
+     * The time after which an unused key has the same state as a new key.
+     *
+     * @return idle time in the unit of the clock
+     */
+    protected abstract long idleTime();
+
+    private boolean acquire(long high, long low, Object ref, int permits) {
+        var hash = hash(high, low);
+        var segment = segments[hash & (SEGMENTS - 1)];
+        synchronized (segment) {
+            var now = clock.getAsLong();
+            var slot = segment.find(hash, high, low, ref);
+            if (slot < 0) {
+                slot = segment.insert(hash, high, low, ref, now, idleTime());
+                init(segment.state, slot * stride, now);
+            }
+            segment.lastAccess[slot] = now;
+            return acquire(segment.state, slot * stride, now, permits);
+        }
+    }
+
+    private void remove(long high, long low, Object ref) {
+        var hash = hash(high, low);
+        var segment = segments[hash & (SEGMENTS - 1)];
+        synchronized (segment) {
+            var slot = segment.find(hash, high, low, ref);
+            if (slot >= 0) segment.delete(slot);
+        }
+    }
+
+    private static int hash(long high, long low) {
+        var hash = high * 0x9E3779B97F4A7C15L ^ low * 0xC2B2AE3D27D4EB4FL;
+        hash ^= hash >>> 29;
+        return (int) (hash ^ hash >>> 32);
+    }
+
+    private static final class Segment {
+        private final int stride;
+        private boolean[] used;
+        private int[] hashes;
+        private long[] highs;
+        private long[] lows;
+        private Object[] refs;
+        private long[] lastAccess;
+        private long[] state;
+        private int size;
+
+        private Segment(int slots, int stride) {
+            this.stride = stride;
+            allocate(slots);
+        }
+
+        private void allocate(int slots) {
+            used = new boolean[slots];
+            hashes = new int[slots];
+            highs = new long[slots];
+            lows = new long[slots];
+            refs = new Object[slots];
+            lastAccess = new long[slots];
+            state = new long[slots * stride];
+            size = 0;
+        }
+
+        private int home(int hash) {
+            // the lower bits select the segment
+            return (hash >>> 4) & (used.length - 1);
+        }
+
+        private int find(int hash, long high, long low, Object ref) {
+            var mask = used.length - 1;
+            for (var slot = home(hash); used[slot]; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash && highs[slot] == high && lows[slot] == low
+                    && (ref == null ? refs[slot] == null : ref.equals(refs[slot]))) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int insert(int hash, long high, long low, Object ref, long now, long idleTime) {
+            if ((size + 1) * 2 > used.length) {
+                expire(now, idleTime);
+                if ((size + 1) * 2 > used.length) grow();
+            }
+            var mask = used.length - 1;
+            var slot = home(hash);
+            while (used[slot]) slot = (slot + 1) & mask;
+            used[slot] = true;
+            hashes[slot] = hash;
+            highs[slot] = high;
+            lows[slot] = low;
+            refs[slot] = ref;
+            size++;
+            return slot;
+        }
+
+        private void expire(long now, long idleTime) {
+            for (var slot = 0; slot < used.length; ) {
+                if (used[slot] && now - lastAccess[slot] >= idleTime) {
+                    // another key might be moved into this slot, so it is checked again.
+                    delete(slot);
+                } else {
+                    slot++;
+                }
+            }
+        }
+
+        private void grow() {
+            var oldUsed = used;
+            var oldHashes = hashes;
+            var oldHighs = highs;
+            var oldLows = lows;
+            var oldRefs = refs;
+            var oldAccess = lastAccess;
+            var oldState = state;
+            allocate(oldUsed.length * 2);
+            var mask = used.length - 1;
+            for (var i = 0; i < oldUsed.length; i++) {
+                if (!oldUsed[i]) continue;
+                var slot = home(oldHashes[i]);
+                while (used[slot]) slot = (slot + 1) & mask;
+                used[slot] = true;
+                hashes[slot] = oldHashes[i];
+                highs[slot] = oldHighs[i];
+                lows[slot] = oldLows[i];
+                refs[slot] = oldRefs[i];
+                lastAccess[slot] = oldAccess[i];
+                System.arraycopy(oldState, i * stride, state, slot * stride, stride);
+                size++;
+            }
+        }
+
+        /**
+         * Removes a key and shifts the following keys back, so no tombstones are required.
+         */
+        private void delete(int slot) {
+            var mask = used.length - 1;
+            var free = slot;
+            var next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (!used[next]) break;
+                var home = home(hashes[next]);
+                // keys whose home lies cyclically between the free slot and their slot stay where they are.
+                if (free <= next ? free < home && home <= next : free < home || home <= next) continue;
+                move(next, free);
+                free = next;
+            }
+            used[free] = false;
+            refs[free] = null;
+            Arrays.fill(state, free * stride, free * stride + stride, 0);
+            size--;
+        }
+
+        private void move(int from, int to) {
+            used[to] = true;
+            hashes[to] = hashes[from];
+            highs[to] = highs[from];
+            lows[to] = lows[from];
+            refs[to] = refs[from];
+            lastAccess[to] = lastAccess[from];
+            System.arraycopy(state, from * stride, state, to * stride, stride);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.ratelimit;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A rate limiter which allows a fixed amount of permits per key within a sliding window.
+ * <p>
+ * The window is approximated by the count of the current and the previous fixed window.
+ * The count of the previous window is weighted by the share it still has in the sliding window.
+ *
+ * @since 2.2.0
+ */
+public final class SlidingWindowLimiter extends RateLimiter {
+    private static final int START = 0;
+    private static final int CURRENT = 1;
+    private static final int PREVIOUS = 2;
+    private final long limit;
+    private final long window;
+
+    SlidingWindowLimiter(long limit, long window, LongSupplier clock) {
+        super(clock, 3);
+        if (limit <= 0 || window <= 0) {
+            throw new IllegalArgumentException("Limit and window have to be positive.");
+        }
+        this.limit = limit;
+        this.window = window;
+    }
+
+    @Override
+    protected void init(long[] state, int index, long now) {
+        state[index + START] = now;
+    }
+
+    @Override
+    protected boolean acquire(long[] state, int index, long now, int permits) {
+        var elapsed = now - state[index + START];
+        if (elapsed >= window) {
+            var windows = elapsed / window;
+            state[index + PREVIOUS] = windows == 1 ? state[index + CURRENT] : 0;
+            state[index + CURRENT] = 0;
+            state[index + START] += windows * window;
+            elapsed -= windows * window;
+        }
+        var previousShare = (double) (window - Math.max(0, elapsed)) / window;
+        var estimate = state[index + PREVIOUS] * previousShare + state[index + CURRENT];
+        if (estimate + permits > limit) return false;
+        state[index + CURRENT] += permits;
+        return true;
+    }
+
+    @Override
+    protected long idleTime() {
+        // after two windows the previous and current count are both zero
+        return window * 2;
+    }
+}
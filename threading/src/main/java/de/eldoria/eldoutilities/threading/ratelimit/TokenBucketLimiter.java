@@ -0,0 +1,58 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.ratelimit;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A rate limiter which refills a bucket of tokens per key at a fixed rate.
+ * <p>
+ * A full bucket allows a burst of up to the capacity. Afterward permits are granted at the refill rate.
+ *
+ * @since 2.2.0
+ */
+public final class TokenBucketLimiter extends RateLimiter {
+    private static final int TOKENS = 0;
+    private static final int REFILL = 1;
+    private final long capacity;
+    private final double tokensPerUnit;
+    private final long idleTime;
+
+    TokenBucketLimiter(long capacity, long tokens, long interval, LongSupplier clock) {
+        super(clock, 2);
+        if (capacity <= 0 || tokens <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("Capacity, tokens and interval have to be positive.");
+        }
+        this.capacity = capacity;
+        this.tokensPerUnit = (double) tokens / interval;
+        // the time a bucket requires to be full again
+        this.idleTime = (long) Math.ceil(capacity / tokensPerUnit);
+    }
+
+    @Override
+    protected void init(long[] state, int index, long now) {
+        state[index + TOKENS] = Double.doubleToRawLongBits(capacity);
+        state[index + REFILL] = now;
+    }
+
+    @Override
+    protected boolean acquire(long[] state, int index, long now, int permits) {
+        var tokens = Double.longBitsToDouble(state[index + TOKENS]);
+        var elapsed = Math.max(0, now - state[index + REFILL]);
+        tokens = Math.min(capacity, tokens + elapsed * tokensPerUnit);
+        state[index + REFILL] = now;
+        var acquired = tokens >= permits;
+        if (acquired) tokens -= permits;
+        state[index + TOKENS] = Double.doubleToRawLongBits(tokens);
+        return acquired;
+    }
+
+    @Override
+    protected long idleTime() {
+        return idleTime;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+/**
+ * Scheduler for servers with a single main thread. Every synchronous context is executed on the main thread.
+ *
+ * @since 2.2.0
+ */
+public final class BukkitTaskScheduler implements TaskScheduler {
+    private final Plugin plugin;
+    private final ExecutionContext global;
+    private final ExecutionContext async;
+
+    public BukkitTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+        global = new MainThreadContext();
+        async = new AsyncContext();
+    }
+
+    @Override
+    public ExecutionContext global() {
+        return global;
+    }
+
+    @Override
+    public ExecutionContext region(Location location) {
+        return global;
+    }
+
+    @Override
+    public ExecutionContext region(World world, int chunkX, int chunkZ) {
+        return global;
+    }
+
+    @Override
+    public ExecutionContext entity(Entity entity) {
+        return new EntityContext(entity);
+    }
+
+    @Override
+    public ExecutionContext async() {
+        return async;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return false;
+    }
+
+    private record Handle(BukkitTask task) implements TaskHandle {
+        @Override
+        public void cancel() {
+            task.cancel();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+    }
+
+    private class MainThreadContext implements ExecutionContext {
+        @Override
+        public TaskHandle run(Runnable task) {
+            return new Handle(plugin.getServer().getScheduler().runTask(plugin, task));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return new Handle(plugin.getServer().getScheduler().runTaskLater(plugin, task, delay));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return new Handle(plugin.getServer().getScheduler().runTaskTimer(plugin, task, delay, period));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return plugin.getServer().isPrimaryThread();
+        }
+    }
+
+    private final class EntityContext extends MainThreadContext {
+        private final Entity entity;
+
+        private EntityContext(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public TaskHandle run(Runnable task) {
+            return super.run(guard(task));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return super.runLater(guard(task), delay);
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            var handle = new TaskHandle[1];
+            handle[0] = super.runTimer(() -> {
+                if (entity.isValid()) {
+                    task.run();
+                } else if (handle[0] != null) {
+                    handle[0].cancel();
+                }
+            }, delay, period);
+            return handle[0];
+        }
+
+        private Runnable guard(Runnable task) {
+            // Tasks of removed entities are dropped like on region threaded servers.
+            return () -> {
+                if (entity.isValid()) task.run();
+            };
+        }
+    }
+
+    private class AsyncContext implements ExecutionContext {
+        @Override
+        public TaskHandle run(Runnable task) {
+            return new Handle(plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return new Handle(plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, task, delay));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return new Handle(plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, task, delay, period));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A context which executes tasks on the thread that owns it.
+ * <p>
+ * On servers with one main thread every synchronous context is executed on the main thread.
+ * On region threaded servers a region context is executed by the thread which owns the region
+ * and an entity context follows the entity across regions.
+ * <p>
+ * Delays and periods are defined in ticks.
+ *
+ * @since 2.2.0
+ */
+public interface ExecutionContext extends Executor {
+    /**
+     * Run a task in the next tick of the context.
+     *
+     * @param task task
+     * @return handle of the task
+     */
+    TaskHandle run(Runnable task);
+
+    /**
+     * Run a task after a delay.
+     *
+     * @param task  task
+     * @param delay delay in ticks
+     * @return handle of the task
+     */
+    TaskHandle runLater(Runnable task, long delay);
+
+    /**
+     * Run a task repeatedly until it is cancelled.
+     *
+     * @param task   task
+     * @param delay  delay before the first execution in ticks
+     * @param period period between two executions in ticks
+     * @return handle of the task
+     */
+    TaskHandle runTimer(Runnable task, long delay, long period);
+
+    /**
+     * Checks whether the current thread owns this context. Tasks can be executed directly when this is true.
+     *
+     * @return true if the current thread owns this context
+     */
+    boolean isOwnedByCurrentThread();
+
+    /**
+     * Executes the task directly if the current thread owns this context or in the next tick otherwise.
+     *
+     * @param command task
+     */
+    @Override
+    default void execute(@NotNull Runnable command) {
+        if (isOwnedByCurrentThread()) {
+            command.run();
+        } else {
+            run(command);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A scheduler which imitates a region threaded server without a running server.
+ * <p>
+ * The global context and every region are executed by their own thread. Chunks are grouped into regions,
+ * which are distributed over a fixed amount of region threads. A tick lasts 50 ms.
+ * <p>
+ * This scheduler is meant for tests of code which has to run on region threaded servers.
+ * It can be installed via {@link TaskSchedulers#override(org.bukkit.plugin.Plugin, TaskScheduler)}.
+ *
+ * @since 2.2.0
+ */
+public final class LocalTaskScheduler implements TaskScheduler, AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(LocalTaskScheduler.class.getName());
+    private static final long TICK_MILLIS = 50;
+    /**
+     * A region contains 8 by 8 chunks.
+     */
+    private static final int REGION_SHIFT = 3;
+    private final Worker global;
+    private final Worker[] regions;
+    private final ScheduledExecutorService asyncExecutor;
+    private final ExecutionContext async;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param regionThreads amount of threads used to tick regions
+     */
+    public LocalTaskScheduler(int regionThreads) {
+        global = new Worker("local-global");
+        regions = new Worker[Math.max(1, regionThreads)];
+        for (var i = 0; i < regions.length; i++) {
+            regions[i] = new Worker("local-region-" + i);
+        }
+        asyncExecutor = Executors.newScheduledThreadPool(2, runnable -> {
+            var thread = new Thread(runnable, "local-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        async = new AsyncContext();
+    }
+
+    /**
+     * Creates a new scheduler with one region thread per core.
+     */
+    public LocalTaskScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public ExecutionContext global() {
+        return global;
+    }
+
+    @Override
+    public ExecutionContext region(Location location) {
+        return region(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    @Override
+    public ExecutionContext region(World world, int chunkX, int chunkZ) {
+        var hash = Objects.hash(world == null ? null : world.getUID(), chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+        return regions[Math.floorMod(hash, regions.length)];
+    }
+
+    @Override
+    public ExecutionContext entity(Entity entity) {
+        return new EntityContext(entity);
+    }
+
+    @Override
+    public ExecutionContext async() {
+        return async;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    /**
+     * Stops all threads of the scheduler. Scheduled tasks are discarded.
+     */
+    @Override
+    public void close() {
+        global.executor.shutdownNow();
+        for (var region : regions) {
+            region.executor.shutdownNow();
+        }
+        asyncExecutor.shutdownNow();
+    }
+
+    private static Runnable logging(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                LOGGER.log(Level.SEVERE, "Exception in scheduled task", e);
+            }
+        };
+    }
+
+    private static TaskHandle schedule(ScheduledExecutorService executor, Runnable task, long delay) {
+        return new Handle(executor.schedule(logging(task), Math.max(0, delay) * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private static TaskHandle scheduleTimer(ScheduledExecutorService executor, Runnable task, long delay, long period) {
+        return new Handle(executor.scheduleAtFixedRate(logging(task), Math.max(0, delay) * TICK_MILLIS,
+                Math.max(1, period) * TICK_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private record Handle(ScheduledFuture<?> future) implements TaskHandle {
+        @Override
+        public void cancel() {
+            future.cancel(false);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+    }
+
+    private static final class Worker implements ExecutionContext {
+        private final ScheduledExecutorService executor;
+        private volatile Thread thread;
+
+        private Worker(String name) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var created = new Thread(runnable, name);
+                created.setDaemon(true);
+                thread = created;
+                return created;
+            });
+        }
+
+        @Override
+        public TaskHandle run(Runnable task) {
+            return schedule(executor, task, 0);
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return schedule(executor, task, delay);
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return scheduleTimer(executor, task, delay, period);
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return Thread.currentThread() == thread;
+        }
+    }
+
+    private final class EntityContext implements ExecutionContext {
+        private final Entity entity;
+
+        private EntityContext(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public TaskHandle run(Runnable task) {
+            return region(entity.getLocation()).run(guard(task));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return region(entity.getLocation()).runLater(guard(task), delay);
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            // the region is resolved once. Entities moving between regions are not followed by timers.
+            return region(entity.getLocation()).runTimer(guard(task), delay, period);
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return region(entity.getLocation()).isOwnedByCurrentThread();
+        }
+
+        private Runnable guard(Runnable task) {
+            return () -> {
+                if (entity.isValid()) task.run();
+            };
+        }
+    }
+
+    private final class AsyncContext implements ExecutionContext {
+        @Override
+        public TaskHandle run(Runnable task) {
+            return schedule(asyncExecutor, task, 0);
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return schedule(asyncExecutor, task, delay);
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return scheduleTimer(asyncExecutor, task, delay, period);
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return false;
+        }
+    }
+}
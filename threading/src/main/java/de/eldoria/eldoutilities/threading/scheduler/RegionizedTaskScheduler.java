@@ -0,0 +1,271 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.Server;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler for region threaded servers like Folia.
+ * <p>
+ * Region and entity contexts are executed by the thread which owns the region or entity.
+ * The region threaded schedulers require a delay of at least one tick, so shorter delays are raised to one tick.
+ *
+ * @since 2.2.0
+ */
+public final class RegionizedTaskScheduler implements TaskScheduler {
+    private static final long TICK_MILLIS = 50;
+    @Nullable
+    private static final Method IS_GLOBAL_TICK_THREAD = globalTickThreadCheck();
+    private final Plugin plugin;
+    private final ExecutionContext global;
+    private final ExecutionContext async;
+
+    public RegionizedTaskScheduler(Plugin plugin) {
+        this.plugin = plugin;
+        global = new GlobalContext();
+        async = new AsyncContext();
+    }
+
+    @Override
+    public ExecutionContext global() {
+        return global;
+    }
+
+    @Override
+    public ExecutionContext region(Location location) {
+        return new LocationContext(location.clone());
+    }
+
+    @Override
+    public ExecutionContext region(World world, int chunkX, int chunkZ) {
+        return new ChunkContext(world, chunkX, chunkZ);
+    }
+
+    @Override
+    public ExecutionContext entity(Entity entity) {
+        return new EntityContext(entity);
+    }
+
+    @Override
+    public ExecutionContext async() {
+        return async;
+    }
+
+    @Override
+    public boolean isRegionized() {
+        return true;
+    }
+
+    private boolean isGlobalTickThread() {
+        if (IS_GLOBAL_TICK_THREAD != null) {
+            try {
+                return (boolean) IS_GLOBAL_TICK_THREAD.invoke(plugin.getServer());
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                // fall through
+            }
+        }
+        // every region thread is a primary thread, so this is only an approximation.
+        return plugin.getServer().isPrimaryThread();
+    }
+
+    @Nullable
+    private static Method globalTickThreadCheck() {
+        // Server#isGlobalTickThread is not available in all versions of the api we compile against.
+        try {
+            return Server.class.getMethod("isGlobalTickThread");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static Consumer<ScheduledTask> consumer(Runnable task) {
+        return scheduled -> task.run();
+    }
+
+    private static long delay(long delay) {
+        return Math.max(1, delay);
+    }
+
+    private static TaskHandle handle(ScheduledTask task) {
+        // the entity scheduler returns null when the entity was already removed.
+        return task == null ? CancelledHandle.INSTANCE : new Handle(task);
+    }
+
+    private record Handle(ScheduledTask task) implements TaskHandle {
+        @Override
+        public void cancel() {
+            task.cancel();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+    }
+
+    private enum CancelledHandle implements TaskHandle {
+        INSTANCE;
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return true;
+        }
+    }
+
+    private final class GlobalContext implements ExecutionContext {
+        @Override
+        public TaskHandle run(Runnable task) {
+            return handle(plugin.getServer().getGlobalRegionScheduler().run(plugin, consumer(task)));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return handle(plugin.getServer().getGlobalRegionScheduler().runDelayed(plugin, consumer(task), delay(delay)));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return handle(plugin.getServer().getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, consumer(task), delay(delay), delay(period)));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return isGlobalTickThread();
+        }
+    }
+
+    private final class LocationContext implements ExecutionContext {
+        private final Location location;
+
+        private LocationContext(Location location) {
+            this.location = location;
+        }
+
+        @Override
+        public TaskHandle run(Runnable task) {
+            return handle(plugin.getServer().getRegionScheduler().run(plugin, location, consumer(task)));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return handle(plugin.getServer().getRegionScheduler().runDelayed(plugin, location, consumer(task), delay(delay)));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return handle(plugin.getServer().getRegionScheduler()
+                    .runAtFixedRate(plugin, location, consumer(task), delay(delay), delay(period)));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return plugin.getServer().isOwnedByCurrentRegion(location);
+        }
+    }
+
+    private final class ChunkContext implements ExecutionContext {
+        private final World world;
+        private final int chunkX;
+        private final int chunkZ;
+
+        private ChunkContext(World world, int chunkX, int chunkZ) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        @Override
+        public TaskHandle run(Runnable task) {
+            return handle(plugin.getServer().getRegionScheduler().run(plugin, world, chunkX, chunkZ, consumer(task)));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return handle(plugin.getServer().getRegionScheduler()
+                    .runDelayed(plugin, world, chunkX, chunkZ, consumer(task), delay(delay)));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return handle(plugin.getServer().getRegionScheduler()
+                    .runAtFixedRate(plugin, world, chunkX, chunkZ, consumer(task), delay(delay), delay(period)));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return plugin.getServer().isOwnedByCurrentRegion(world, chunkX, chunkZ);
+        }
+    }
+
+    private final class EntityContext implements ExecutionContext {
+        private final Entity entity;
+
+        private EntityContext(Entity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public TaskHandle run(Runnable task) {
+            return handle(entity.getScheduler().run(plugin, consumer(task), null));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return handle(entity.getScheduler().runDelayed(plugin, consumer(task), null, delay(delay)));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return handle(entity.getScheduler().runAtFixedRate(plugin, consumer(task), null, delay(delay), delay(period)));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return plugin.getServer().isOwnedByCurrentRegion(entity);
+        }
+    }
+
+    private final class AsyncContext implements ExecutionContext {
+        @Override
+        public TaskHandle run(Runnable task) {
+            return handle(plugin.getServer().getAsyncScheduler().runNow(plugin, consumer(task)));
+        }
+
+        @Override
+        public TaskHandle runLater(Runnable task, long delay) {
+            return handle(plugin.getServer().getAsyncScheduler()
+                    .runDelayed(plugin, consumer(task), delay(delay) * TICK_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public TaskHandle runTimer(Runnable task, long delay, long period) {
+            return handle(plugin.getServer().getAsyncScheduler()
+                    .runAtFixedRate(plugin, consumer(task), delay(delay) * TICK_MILLIS, delay(period) * TICK_MILLIS, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean isOwnedByCurrentThread() {
+            return false;
+        }
+    }
+}
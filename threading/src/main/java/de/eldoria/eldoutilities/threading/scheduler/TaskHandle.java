@@ -0,0 +1,26 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+/**
+ * A handle of a task scheduled via an {@link ExecutionContext}.
+ *
+ * @since 2.2.0
+ */
+public interface TaskHandle {
+    /**
+     * Cancel the task. A running task will finish its current execution.
+     */
+    void cancel();
+
+    /**
+     * Checks whether the task was cancelled.
+     *
+     * @return true if cancelled
+     */
+    boolean isCancelled();
+}
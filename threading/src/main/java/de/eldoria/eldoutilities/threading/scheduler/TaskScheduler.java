@@ -0,0 +1,67 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+/**
+ * Provides the execution contexts of a plugin.
+ * <p>
+ * Use {@link TaskSchedulers#of(org.bukkit.plugin.Plugin)} to get the scheduler matching the server implementation.
+ *
+ * @since 2.2.0
+ */
+public interface TaskScheduler {
+    /**
+     * The global context. Used for work which is not bound to a location, like world time or plugin wide tasks.
+     *
+     * @return global context
+     */
+    ExecutionContext global();
+
+    /**
+     * The context owning the region of a location.
+     *
+     * @param location location
+     * @return region context
+     */
+    ExecutionContext region(Location location);
+
+    /**
+     * The context owning the region of a chunk.
+     *
+     * @param world  world
+     * @param chunkX chunk x coordinate
+     * @param chunkZ chunk z coordinate
+     * @return region context
+     */
+    ExecutionContext region(World world, int chunkX, int chunkZ);
+
+    /**
+     * The context owning an entity. Tasks follow the entity between regions and are dropped once the entity is removed.
+     *
+     * @param entity entity
+     * @return entity context
+     */
+    ExecutionContext entity(Entity entity);
+
+    /**
+     * A context which executes tasks asynchronously.
+     *
+     * @return async context
+     */
+    ExecutionContext async();
+
+    /**
+     * Checks whether the server ticks regions in parallel.
+     *
+     * @return true if regions are ticked by several threads
+     */
+    boolean isRegionized();
+}
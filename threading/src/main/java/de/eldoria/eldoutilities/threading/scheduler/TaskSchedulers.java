@@ -0,0 +1,67 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import org.bukkit.plugin.Plugin;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the {@link TaskScheduler} of each plugin.
+ * <p>
+ * The scheduler is chosen based on the server implementation. Region threaded servers receive a {@link RegionizedTaskScheduler},
+ * every other server a {@link BukkitTaskScheduler}.
+ *
+ * @since 2.2.0
+ */
+public final class TaskSchedulers {
+    private static final boolean REGIONIZED = classExists("io.papermc.paper.threadedregions.RegionizedServer");
+    private static final Map<Class<? extends Plugin>, TaskScheduler> SCHEDULERS = new ConcurrentHashMap<>();
+
+    private TaskSchedulers() {
+    }
+
+    /**
+     * Get the scheduler of a plugin.
+     *
+     * @param plugin plugin
+     * @return scheduler of the plugin
+     */
+    public static TaskScheduler of(Plugin plugin) {
+        return SCHEDULERS.computeIfAbsent(plugin.getClass(), key ->
+                REGIONIZED ? new RegionizedTaskScheduler(plugin) : new BukkitTaskScheduler(plugin));
+    }
+
+    /**
+     * Replace the scheduler of a plugin. Used to run plugin code with a {@link LocalTaskScheduler} in tests.
+     *
+     * @param plugin    plugin
+     * @param scheduler scheduler
+     */
+    public static void override(Plugin plugin, TaskScheduler scheduler) {
+        SCHEDULERS.put(plugin.getClass(), scheduler);
+    }
+
+    /**
+     * Checks whether the server ticks regions in parallel.
+     *
+     * @return true on region threaded servers
+     */
+    public static boolean isRegionized() {
+        return REGIONIZED;
+    }
+
+    private static boolean classExists(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CoalescingSchedulerTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private final List<String> runs = new CopyOnWriteArrayList<>();
+    private Plugin plugin;
+    private DelayedActions actions;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("CoalescingSchedulerTest"));
+        TaskSchedulers.override(plugin, scheduler);
+        actions = DelayedActions.start(plugin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+    }
+
+    @Test
+    void submitKeepsFirstDeadline() throws InterruptedException {
+        var coalescing = CoalescingScheduler.<String>of(actions);
+        coalescing.submit("key", 10, () -> runs.add("first"));
+        Thread.sleep(250);
+        coalescing.submit("key", 10, () -> runs.add("second"));
+        // the first task was due after 500 ms
+        Thread.sleep(400);
+        assertEquals(List.of("second"), runs);
+        assertFalse(coalescing.isPending("key"));
+        assertEquals(2, coalescing.submitted());
+        assertEquals(1, coalescing.executed());
+        assertEquals(1, coalescing.coalesced());
+    }
+
+    @Test
+    void debounceRestartsDelay() throws InterruptedException {
+        var coalescing = CoalescingScheduler.<String>of(actions);
+        coalescing.debounce("key", 10, () -> runs.add("first"));
+        Thread.sleep(250);
+        coalescing.debounce("key", 10, () -> runs.add("second"));
+        // the second task is due 500 ms after it was submitted
+        Thread.sleep(400);
+        assertTrue(runs.isEmpty());
+        assertTrue(coalescing.isPending("key"));
+        Thread.sleep(400);
+        assertEquals(List.of("second"), runs);
+        assertFalse(coalescing.isPending("key"));
+        assertEquals(1, coalescing.executed());
+        assertEquals(1, coalescing.coalesced());
+    }
+
+    @Test
+    void rejectsTasksAfterShutdown() {
+        var coalescing = CoalescingScheduler.<String>of(actions);
+        actions.shutdown();
+        assertThrows(IllegalStateException.class, () -> coalescing.submit("key", 1, () -> runs.add("task")));
+        assertThrows(IllegalStateException.class, () -> coalescing.debounce("key", 1, () -> runs.add("task")));
+        assertEquals(0, coalescing.pending());
+    }
+}
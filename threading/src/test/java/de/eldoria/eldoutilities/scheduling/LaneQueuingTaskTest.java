@@ -0,0 +1,170 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LaneQueuingTaskTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final List<String> dropped = new CopyOnWriteArrayList<>();
+    private Plugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("LaneQueuingTaskTest"));
+        TaskSchedulers.override(plugin, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+    }
+
+    @Test
+    void floodedLaneDoesNotDelayOtherLanes() throws Exception {
+        var task = new TestTask(plugin, 1000, OverflowPolicy.DROP_NEWEST) {
+            @Override
+            public void execute(String lane, String object) {
+                // every object uses up the quantum of its lane
+                var end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+                while (System.nanoTime() < end) Thread.onSpinWait();
+                super.execute(lane, object);
+            }
+        };
+        // schedule on the owning thread, so the task does not run before all objects are queued
+        onOwner(() -> {
+            for (var i = 0; i < 60; i++) task.schedule("flood", "f" + i);
+            for (var i = 0; i < 3; i++) task.schedule("small", "s" + i);
+        });
+        awaitExecuted(63);
+        // the lanes take turns, so the small lane is not served after the flood
+        assertTrue(executed.indexOf("s2") < 30, executed.toString());
+        assertEquals(0, task.size());
+        assertEquals(0, task.lanes());
+    }
+
+    @Test
+    void dropNewest() throws Exception {
+        var task = new TestTask(plugin, 2, OverflowPolicy.DROP_NEWEST);
+        var accepted = new CompletableFuture<List<Boolean>>();
+        onOwner(() -> accepted.complete(List.of(task.schedule("a", "a1"), task.schedule("a", "a2"),
+                task.schedule("a", "a3"), task.schedule("b", "b1"))));
+        assertEquals(List.of(true, true, false, true), accepted.get(1, TimeUnit.SECONDS));
+        awaitExecuted(3);
+        assertEquals(List.of("a1", "a2", "b1"), executed.stream().sorted().toList());
+        assertEquals(List.of("a3"), dropped);
+        assertEquals(1, task.rejected());
+        assertEquals(0, task.dropped());
+    }
+
+    @Test
+    void dropOldest() throws Exception {
+        var task = new TestTask(plugin, 2, OverflowPolicy.DROP_OLDEST);
+        var accepted = new CompletableFuture<List<Boolean>>();
+        onOwner(() -> accepted.complete(List.of(task.schedule("a", "a1"), task.schedule("a", "a2"),
+                task.schedule("a", "a3"))));
+        assertEquals(List.of(true, true, true), accepted.get(1, TimeUnit.SECONDS));
+        awaitExecuted(2);
+        assertEquals(List.of("a2", "a3"), executed);
+        assertEquals(List.of("a1"), dropped);
+        assertEquals(0, task.rejected());
+        assertEquals(1, task.dropped());
+    }
+
+    @Test
+    void clearFromOtherThread() throws Exception {
+        var started = new CountDownLatch(1);
+        var gate = new CountDownLatch(1);
+        var task = new TestTask(plugin, 100, OverflowPolicy.DROP_NEWEST) {
+            @Override
+            public void execute(String lane, String object) {
+                if (object.equals("first")) {
+                    started.countDown();
+                    await(gate);
+                }
+                super.execute(lane, object);
+            }
+        };
+        task.schedule("a", "first");
+        task.schedule("a", "cleared");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        // the owning thread is currently serving the lane
+        task.clear();
+        assertEquals(0, task.size());
+        assertEquals(0, task.lanes());
+        gate.countDown();
+
+        assertTrue(task.schedule("a", "second"));
+        awaitExecuted(2);
+        assertEquals(List.of("first", "second"), executed);
+        assertFalse(executed.contains("cleared"));
+    }
+
+    private void onOwner(Runnable runnable) throws Exception {
+        var done = new CompletableFuture<Void>();
+        scheduler.global().run(() -> {
+            runnable.run();
+            done.complete(null);
+        });
+        done.get(1, TimeUnit.SECONDS);
+    }
+
+    private void awaitExecuted(int amount) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (executed.size() < amount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(amount, executed.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class TestTask extends LaneQueuingTask<String, String> {
+        private TestTask(Plugin plugin, int laneCapacity, OverflowPolicy overflowPolicy) {
+            super(plugin, laneCapacity, overflowPolicy);
+        }
+
+        @Override
+        public void execute(String lane, String object) {
+            executed.add(object);
+        }
+
+        @Override
+        protected void dropped(String lane, String object) {
+            dropped.add(object);
+        }
+    }
+}
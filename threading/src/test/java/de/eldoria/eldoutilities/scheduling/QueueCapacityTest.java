@@ -0,0 +1,164 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueueCapacityTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final List<String> dropped = new CopyOnWriteArrayList<>();
+    private Plugin plugin;
+    private volatile boolean open;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("QueueCapacityTest"));
+        TaskSchedulers.override(plugin, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+    }
+
+    @Test
+    void dropNewest() throws InterruptedException {
+        var task = new TestTask(OverflowPolicy.DROP_NEWEST);
+        assertTrue(task.trySchedule("a"));
+        assertTrue(task.trySchedule("b"));
+        assertFalse(task.trySchedule("c"));
+        assertEquals(2, task.queueDepth());
+        assertEquals(1, task.rejected());
+        assertEquals(List.of("c"), dropped);
+        open = true;
+        awaitCondition(() -> executed.size() == 2);
+        assertEquals(List.of("a", "b"), executed);
+    }
+
+    @Test
+    void dropOldest() throws InterruptedException {
+        var task = new TestTask(OverflowPolicy.DROP_OLDEST);
+        assertTrue(task.trySchedule("a"));
+        assertTrue(task.trySchedule("b"));
+        assertTrue(task.trySchedule("c"));
+        // the oldest object is dropped in the next tick
+        awaitCondition(() -> !dropped.isEmpty());
+        assertEquals(List.of("a"), dropped);
+        assertEquals(2, task.queueDepth());
+        assertEquals(1, task.dropped());
+        open = true;
+        awaitCondition(() -> executed.size() == 2);
+        assertEquals(List.of("b", "c"), executed);
+    }
+
+    @Test
+    void callerRuns() throws Exception {
+        var task = new TestTask(OverflowPolicy.CALLER_RUNS);
+        assertTrue(task.trySchedule("a"));
+        assertTrue(task.trySchedule("b"));
+        // the owning thread handles the object directly
+        assertTrue(onOwner(() -> task.trySchedule("c") && executed.equals(List.of("c"))));
+        assertEquals(2, task.queueDepth());
+        open = true;
+        awaitCondition(() -> executed.size() == 3);
+        assertEquals(List.of("c", "a", "b"), executed);
+    }
+
+    @Test
+    void merge() throws Exception {
+        var task = new TestTask(OverflowPolicy.MERGE);
+        assertTrue(task.trySchedule("a"));
+        assertTrue(task.trySchedule("b"));
+        // queued objects can only be merged on the owning thread
+        assertTrue(onOwner(() -> task.trySchedule("a")));
+        assertFalse(onOwner(() -> task.trySchedule("c")));
+        assertEquals(1, task.rejected());
+        assertEquals(List.of("c"), dropped);
+        open = true;
+        awaitCondition(() -> executed.size() == 2);
+        assertEquals(List.of("a", "b"), executed);
+    }
+
+    @Test
+    void block() throws Exception {
+        // the main thread never waits, so the capacity is tested without a task
+        var capacity = new QueueCapacity(1, OverflowPolicy.BLOCK);
+        assertTrue(capacity.tryAcquire());
+        assertFalse(capacity.awaitAcquire(() -> false));
+
+        var acquired = CompletableFuture.supplyAsync(() -> capacity.awaitAcquire(() -> true));
+        Thread.sleep(100);
+        assertFalse(acquired.isDone());
+        capacity.release(1);
+        assertTrue(acquired.get(1, TimeUnit.SECONDS));
+        assertEquals(1, capacity.size());
+    }
+
+    private <T> T onOwner(Supplier<T> supplier) throws Exception {
+        var result = new CompletableFuture<T>();
+        scheduler.global().run(() -> result.complete(supplier.get()));
+        return result.get(1, TimeUnit.SECONDS);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private class TestTask extends QueuingSelfSchedulingTask<String> {
+        private TestTask(OverflowPolicy overflowPolicy) {
+            super(plugin, 2, overflowPolicy);
+        }
+
+        @Override
+        public void execute(String object) {
+            executed.add(object);
+        }
+
+        @Override
+        protected boolean proceed(String object) {
+            return open;
+        }
+
+        @Override
+        protected boolean merge(String queued, String incoming) {
+            return queued.equals(incoming);
+        }
+
+        @Override
+        protected void dropped(String object) {
+            dropped.add(object);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresOnDeadline() {
+        var wheel = new TimingWheel<Long>();
+        long[] delays = {1, 2, 63, 64, 65, 127, 128, 4095, 4096, 4097, 262_143, 262_144, 300_000};
+        for (var delay : delays) {
+            wheel.schedule(delay, delay);
+        }
+        assertEquals(delays.length, wheel.size());
+
+        List<Long> expired = new ArrayList<>();
+        while (!wheel.isEmpty()) {
+            wheel.advance(delay -> {
+                assertEquals(wheel.tick(), (long) delay);
+                expired.add(delay);
+            });
+        }
+        assertEquals(delays.length, expired.size());
+    }
+
+    @Test
+    void expiresAfterMaxDelay() {
+        var wheel = new TimingWheel<Long>(TimingWheel.MAX_DELAY - 10);
+        var delay = TimingWheel.MAX_DELAY + 100;
+        var deadline = wheel.tick() + delay;
+        wheel.schedule(deadline, delay);
+        List<Long> expired = new ArrayList<>();
+        while (!wheel.isEmpty()) {
+            wheel.advance(value -> {
+                assertEquals(wheel.tick(), (long) value);
+                expired.add(value);
+            });
+        }
+        assertEquals(List.of(deadline), expired);
+    }
+
+    @Test
+    void cancel() {
+        var wheel = new TimingWheel<String>();
+        var first = wheel.schedule("first", 100);
+        var second = wheel.schedule("second", 100);
+        assertTrue(first.cancel());
+        assertFalse(first.cancel());
+        assertEquals(1, wheel.size());
+
+        List<String> expired = new ArrayList<>();
+        for (var i = 0; i < 100; i++) {
+            wheel.advance(expired::add);
+        }
+        assertEquals(List.of("second"), expired);
+        assertTrue(second.isExpired());
+        assertFalse(second.cancel());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CheckpointedIteratingTaskTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private Plugin plugin;
+    private Path checkpoint;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("CheckpointedIteratingTaskTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("CheckpointedIteratingTaskTest"));
+        TaskSchedulers.override(plugin, scheduler);
+        var directory = Files.createTempDirectory("checkpoint");
+        directory.toFile().deleteOnExit();
+        checkpoint = directory.resolve("task.checkpoint");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+        Files.deleteIfExists(checkpoint);
+        Files.deleteIfExists(temp());
+    }
+
+    @Test
+    void resumesAfterRestart() throws Exception {
+        List<Long> first = new CopyOnWriteArrayList<>();
+        var task = CheckpointedIteratingTask.indexed(plugin, checkpoint, 10000, index -> {
+            first.add(index);
+            busyWait(1);
+        });
+        assertTrue(task.start());
+        awaitCondition(() -> first.size() >= 50);
+        task.shutdown();
+        assertFalse(task.isCompleted());
+
+        var cursor = Long.parseLong(read().getProperty("cursor"));
+        assertTrue(cursor > 0 && cursor <= first.size(), "cursor " + cursor + " after " + first.size() + " elements");
+
+        List<Long> second = new CopyOnWriteArrayList<>();
+        var restarted = CheckpointedIteratingTask.indexed(plugin, checkpoint, 10000, second::add);
+        assertTrue(restarted.start());
+        awaitCondition(restarted::isCompleted);
+        // the elements after the checkpoint are processed again
+        assertEquals(cursor, (long) second.get(0));
+        assertEquals(10000 - cursor, second.size());
+        assertEquals(9999, (long) second.get(second.size() - 1));
+        assertEquals(1.0, restarted.progress().fraction());
+        assertEquals("true", read().getProperty("completed"));
+
+        var completed = CheckpointedIteratingTask.indexed(plugin, checkpoint, 10000, index -> { });
+        assertFalse(completed.start());
+        assertTrue(completed.isCompleted());
+    }
+
+    @Test
+    void resetStartsFromBeginning() throws Exception {
+        var task = CheckpointedIteratingTask.indexed(plugin, checkpoint, 10, index -> { });
+        assertTrue(task.start());
+        awaitCondition(task::isCompleted);
+        task.reset();
+        assertFalse(Files.exists(checkpoint));
+
+        List<Long> processed = new CopyOnWriteArrayList<>();
+        var restarted = CheckpointedIteratingTask.indexed(plugin, checkpoint, 10, processed::add);
+        assertTrue(restarted.start());
+        awaitCondition(restarted::isCompleted);
+        assertEquals(10, processed.size());
+        assertEquals(0, (long) processed.get(0));
+    }
+
+    @Test
+    void interruptedWriteKeepsCheckpoint() throws Exception {
+        Files.writeString(checkpoint, "cursor=5\nprocessed=5\ncompleted=false\n");
+        // a crash while the next checkpoint was written leaves a partial temporary file behind
+        Files.writeString(temp(), "cursor=");
+
+        List<Long> processed = new CopyOnWriteArrayList<>();
+        var task = CheckpointedIteratingTask.indexed(plugin, checkpoint, 10, processed::add);
+        assertTrue(task.start());
+        awaitCondition(task::isCompleted);
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L), processed);
+
+        // the temporary file was replaced and moved over the checkpoint
+        assertFalse(Files.exists(temp()));
+        var properties = read();
+        assertEquals("true", properties.getProperty("completed"));
+        assertEquals("10", properties.getProperty("processed"));
+    }
+
+    private Path temp() {
+        return checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    }
+
+    private Properties read() throws IOException {
+        var properties = new Properties();
+        try (var reader = new StringReader(Files.readString(checkpoint))) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static void busyWait(long millis) {
+        var end = System.nanoTime() + millis * 1_000_000;
+        while (System.nanoTime() < end) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
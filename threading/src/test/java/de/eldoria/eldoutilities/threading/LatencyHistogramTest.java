@@ -0,0 +1,52 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentiles() {
+        var histogram = new LatencyHistogram();
+        for (var i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(500_500, histogram.mean());
+        // buckets have a precision of 12.5%
+        assertTrue(Math.abs(histogram.p50() - 500_000) <= 500_000 / 8);
+        assertTrue(Math.abs(histogram.p99() - 990_000) <= 990_000 / 8);
+        assertEquals(histogram.max(), histogram.percentile(100));
+    }
+
+    @Test
+    void smallValues() {
+        var histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(-5);
+        assertEquals(0, histogram.p50());
+        assertEquals(3, histogram.max());
+    }
+
+    @Test
+    void add() {
+        var first = new LatencyHistogram();
+        var second = new LatencyHistogram();
+        first.record(10);
+        second.record(Long.MAX_VALUE);
+        first.add(second);
+        assertEquals(2, first.count());
+        assertEquals(Long.MAX_VALUE, first.max());
+        assertEquals(Long.MAX_VALUE, first.p99());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TaskScopeTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private Plugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("TaskScopeTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("TaskScopeTest"));
+        TaskSchedulers.override(plugin, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+    }
+
+    @Test
+    void closeCancelsStragglers() {
+        var scope = TaskScope.of(plugin);
+        var never = scope.track("never", new CompletableFuture<String>());
+        var soon = scope.track("soon", CompletableFuture.supplyAsync(() -> "done",
+                CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS)));
+        assertEquals(2, scope.pendingFutures());
+
+        var stragglers = scope.close(Duration.ofMillis(200));
+        assertEquals(List.of("never"), stragglers);
+        assertTrue(never.isCancelled());
+        assertEquals("done", soon.join());
+        assertEquals(0, scope.pendingFutures());
+    }
+
+    @Test
+    void closeWaitsOnlyUntilTimeout() {
+        var scope = TaskScope.of(plugin);
+        scope.track("first", new CompletableFuture<>());
+        scope.track("second", new CompletableFuture<>());
+        var start = System.nanoTime();
+        scope.close(Duration.ofMillis(100));
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+        // the timeout is shared by all tracked work
+        assertTrue(elapsed.toMillis() >= 100 && elapsed.toMillis() < 1000, "close took " + elapsed.toMillis() + " ms");
+    }
+
+    @Test
+    void closeReportsExecutorStragglers() throws InterruptedException {
+        var scope = TaskScope.of(plugin);
+        var executor = scope.track("worker", Executors.newSingleThreadExecutor());
+        var started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> { });
+        executor.execute(() -> { });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        var stragglers = scope.close(Duration.ofMillis(50));
+        assertEquals(List.of("worker (2 not started)"), stragglers);
+        assertTrue(executor.isShutdown());
+    }
+
+    @Test
+    void closeShutsDownTasks() {
+        var scope = TaskScope.of(plugin);
+        var task = new ReschedulingTask(plugin) {
+            @Override
+            public void run() {
+            }
+        };
+        task.schedule();
+        assertTrue(task.isRunning());
+        assertTrue(scope.close(Duration.ZERO).isEmpty());
+        assertFalse(task.isActive());
+    }
+
+    @Test
+    void closedScopeRejectsWork() {
+        var scope = TaskScope.of(plugin);
+        scope.close(Duration.ZERO);
+        assertTrue(scope.isClosed());
+        assertThrows(IllegalStateException.class, () -> scope.track("late", new CompletableFuture<>()));
+        // the plugin receives a new scope after it was enabled again
+        assertNotSame(scope, TaskScope.of(plugin));
+        assertFalse(TaskScope.of(plugin).isClosed());
+    }
+}
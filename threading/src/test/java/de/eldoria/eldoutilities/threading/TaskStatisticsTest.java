@@ -0,0 +1,36 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TaskStatisticsTest {
+    @Test
+    void shortSlicesAreNotTruncated() {
+        var statistics = new TaskStatistics();
+        for (var i = 0; i < 100; i++) {
+            statistics.recordSlice(TimeUnit.MICROSECONDS.toNanos(400));
+        }
+        assertEquals(40, statistics.getTime());
+        assertEquals(100, statistics.sliceTimes().count());
+    }
+
+    @Test
+    void computeTimeIsSummedInNanos() {
+        var statistics = new TaskStatistics();
+        for (var i = 0; i < 10; i++) {
+            statistics.addComputeNanos(TimeUnit.MICROSECONDS.toNanos(300));
+        }
+        statistics.addTime(2);
+        assertEquals(3, statistics.getComputeTime());
+        assertEquals(2, statistics.getTime());
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TickBudgetTest {
+    private static final long HALF = TimeUnit.MICROSECONDS.toNanos(12500);
+    private static final long FULL = TimeUnit.MILLISECONDS.toNanos(25);
+
+    @Test
+    void sliceSplitsBudgetByWeight() {
+        var budget = new TickBudget();
+        budget.register(null, "low", TaskPriority.LOW);
+        budget.register(null, "high", TaskPriority.HIGH);
+        // high has four fifths of the pending weight
+        var high = budget.slice("high");
+        assertEquals(FULL * 4 / 5, high);
+        budget.consume(high);
+        // low is the only pending task left
+        assertEquals(FULL / 5, budget.slice("low"));
+    }
+
+    @Test
+    void secondSliceStartsNewTick() {
+        var budget = new TickBudget();
+        budget.register(null, "a", TaskPriority.NORMAL);
+        budget.register(null, "b", TaskPriority.NORMAL);
+        var a = budget.slice("a");
+        assertEquals(HALF, a);
+        budget.consume(a);
+        var b = budget.slice("b");
+        assertEquals(HALF, b);
+        budget.consume(b);
+        assertEquals(0, budget.remaining());
+        // a asks again, so the next tick has started and the budget is reset
+        assertEquals(HALF, budget.slice("a"));
+        assertEquals(0, budget.consumed());
+    }
+
+    @Test
+    void paperTicksKeepBudgetWithinTick() {
+        var budget = new TickBudget();
+        budget.paperTickStart();
+        budget.register(null, "a", TaskPriority.NORMAL);
+        var a = budget.slice("a");
+        assertEquals(FULL, a);
+        budget.consume(a);
+        // asking twice does not start a new tick
+        assertEquals(0, budget.slice("a"));
+        assertEquals(FULL, budget.consumed());
+        budget.paperTickStart();
+        assertEquals(FULL, budget.slice("a"));
+    }
+}
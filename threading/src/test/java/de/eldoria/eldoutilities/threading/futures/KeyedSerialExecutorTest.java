@@ -0,0 +1,145 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class KeyedSerialExecutorTest {
+    private Plugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("KeyedSerialExecutorTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("KeyedSerialExecutorTest"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+    }
+
+    @Test
+    void tasksOfKeyRunInOrder() throws Exception {
+        var executor = KeyedSerialExecutor.<String>create(plugin);
+        List<Integer> first = new CopyOnWriteArrayList<>();
+        List<Integer> second = new CopyOnWriteArrayList<>();
+        var running = new AtomicInteger();
+        var overlapped = new AtomicBoolean();
+        for (var i = 0; i < 50; i++) {
+            var value = i;
+            executor.runAsync("first", () -> {
+                if (running.incrementAndGet() > 1) overlapped.set(true);
+                first.add(value);
+                running.decrementAndGet();
+            });
+            executor.runAsync("second", () -> second.add(value));
+        }
+        var last = executor.supplyAsync("first", () -> "done");
+        assertEquals("done", last.asFuture().get(5, TimeUnit.SECONDS));
+        awaitCondition(() -> second.size() == 50 && executor.activeKeys() == 0);
+
+        List<Integer> expected = new ArrayList<>();
+        for (var i = 0; i < 50; i++) expected.add(i);
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertFalse(overlapped.get());
+        assertFalse(executor.isActive("first"));
+    }
+
+    @Test
+    void failingTaskDoesNotStopKey() throws Exception {
+        var executor = KeyedSerialExecutor.<String>create(plugin);
+        executor.runAsync("key", () -> {
+            throw new IllegalStateException("failed");
+        });
+        assertEquals("next", executor.supplyAsync("key", () -> "next").asFuture().get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelledFutureKeepsOrder() throws Exception {
+        var executor = KeyedSerialExecutor.<String>create(plugin);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var firstDone = new AtomicBoolean();
+        var first = executor.runAsync("key", () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            firstDone.set(true);
+        });
+        var overlapped = new AtomicBoolean();
+        var second = executor.runAsync("key", () -> overlapped.set(!firstDone.get()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        first.asFuture().cancel(true);
+        Thread.sleep(100);
+        assertFalse(second.asFuture().isDone());
+        assertTrue(executor.isActive("key"));
+
+        release.countDown();
+        second.asFuture().get(5, TimeUnit.SECONDS);
+        assertFalse(overlapped.get());
+    }
+
+    @Test
+    void pendingTasksAreCancelledOnClose() throws Exception {
+        var executor = KeyedSerialExecutor.<String>create(plugin);
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var ran = new AtomicBoolean();
+        executor.runAsync("key", () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.runAsync("key", () -> ran.set(true));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, TaskScope.of(plugin).pendingFutures());
+
+        var stragglers = TaskScope.of(plugin).close(Duration.ofMillis(50));
+        release.countDown();
+        assertEquals(List.of("keyed task key", "keyed task key"), stragglers);
+        Thread.sleep(100);
+        assertFalse(ran.get());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
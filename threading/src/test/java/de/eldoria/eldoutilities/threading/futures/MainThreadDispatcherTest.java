@@ -0,0 +1,141 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import de.eldoria.eldoutilities.threading.TaskScope;
+import de.eldoria.eldoutilities.threading.scheduler.LocalTaskScheduler;
+import de.eldoria.eldoutilities.threading.scheduler.TaskSchedulers;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MainThreadDispatcherTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(1);
+    private Plugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("MainThreadDispatcherTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("MainThreadDispatcherTest"));
+        when(plugin.isEnabled()).thenReturn(true);
+        TaskSchedulers.override(plugin, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TaskScope.of(plugin).close(Duration.ZERO);
+        scheduler.close();
+    }
+
+    @Test
+    void callbacksRunInOrderOnGlobalThread() throws Exception {
+        var dispatcher = MainThreadDispatcher.of(plugin);
+        List<Integer> calls = new CopyOnWriteArrayList<>();
+        var owned = new CompletableFuture<Boolean>();
+        for (var i = 0; i < 100; i++) {
+            var value = i;
+            dispatcher.execute(() -> calls.add(value));
+        }
+        dispatcher.execute(() -> owned.complete(scheduler.global().isOwnedByCurrentThread()));
+        assertTrue(owned.get(5, TimeUnit.SECONDS));
+        assertEquals(100, calls.size());
+        for (var i = 0; i < 100; i++) assertEquals(i, (int) calls.get(i));
+    }
+
+    @Test
+    void failingCallbackDoesNotStopDispatcher() throws Exception {
+        var dispatcher = MainThreadDispatcher.of(plugin);
+        var next = new CompletableFuture<String>();
+        dispatcher.execute(() -> {
+            throw new IllegalStateException("failed");
+        });
+        dispatcher.execute(() -> next.complete("next"));
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void stopsWhenIdleAndRestarts() throws Exception {
+        var dispatcher = MainThreadDispatcher.of(plugin).maxIdleTicks(2);
+        var first = new CompletableFuture<Void>();
+        dispatcher.execute(() -> first.complete(null));
+        assertTrue(dispatcher.isRunning());
+        first.get(5, TimeUnit.SECONDS);
+        awaitCondition(() -> !dispatcher.isRunning());
+
+        var second = new CompletableFuture<Void>();
+        dispatcher.execute(() -> second.complete(null));
+        assertTrue(dispatcher.isRunning());
+        second.get(5, TimeUnit.SECONDS);
+        assertEquals(0, dispatcher.pending());
+        awaitCondition(() -> !dispatcher.isRunning());
+    }
+
+    @Test
+    void shutdownRunsPendingCallbacks() throws Exception {
+        var dispatcher = MainThreadDispatcher.of(plugin);
+        var blocker = new CompletableFuture<Void>();
+        // block the global thread, so the callbacks stay pending
+        scheduler.global().run(blocker::join);
+        var calls = new CopyOnWriteArrayList<Integer>();
+        dispatcher.execute(() -> calls.add(1));
+        dispatcher.execute(() -> calls.add(2));
+        assertEquals(2, dispatcher.pending());
+
+        MainThreadDispatcher.shutdown(plugin);
+        blocker.complete(null);
+        assertEquals(List.of(1, 2), calls);
+        assertEquals(0, dispatcher.pending());
+        assertFalse(dispatcher.isRunning());
+    }
+
+    @Test
+    void shutdownRejectsCallbacks() {
+        var dispatcher = MainThreadDispatcher.of(plugin);
+        MainThreadDispatcher.shutdown(plugin);
+        assertTrue(dispatcher.isShutdown());
+        assertThrows(RejectedExecutionException.class, () -> dispatcher.execute(() -> { }));
+        assertEquals(0, dispatcher.pending());
+
+        // the plugin is disabled after the shutdown
+        when(plugin.isEnabled()).thenReturn(false);
+        var disabled = MainThreadDispatcher.of(plugin);
+        assertNotSame(dispatcher, disabled);
+        assertThrows(RejectedExecutionException.class, () -> disabled.execute(() -> { }));
+        assertFalse(disabled.isRunning());
+
+        // a new dispatcher is created once the plugin is enabled again
+        when(plugin.isEnabled()).thenReturn(true);
+        assertFalse(MainThreadDispatcher.of(plugin).isShutdown());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.futures;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PluginExecutorsTest {
+    private Plugin plugin;
+
+    @BeforeEach
+    void setUp() {
+        plugin = mock(Plugin.class);
+        when(plugin.getName()).thenReturn("PluginExecutorsTest");
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("PluginExecutorsTest"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        // mocked plugins share their class, so other tests would use the settings of this test
+        PluginExecutors.configure(plugin, ExecutorSettings.defaults());
+        PluginExecutors.shutdown(plugin, Duration.ofSeconds(1));
+    }
+
+    @Test
+    void configureCompletesQueuedTasks() throws Exception {
+        PluginExecutors.configure(plugin, ExecutorSettings.platform(1, 16));
+        var previous = PluginExecutors.of(plugin);
+        var release = new CountDownLatch(1);
+        var running = CompletableFuture.supplyAsync(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "interrupted";
+            }
+            return "running";
+        }, previous);
+        var queued = CompletableFuture.supplyAsync(() -> "queued", previous);
+
+        PluginExecutors.configure(plugin, ExecutorSettings.platform(1, 16));
+        assertTrue(previous.isShutdown());
+        assertNotSame(previous, PluginExecutors.of(plugin));
+        release.countDown();
+        assertEquals("running", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void tokenBucket() {
+        var clock = new AtomicLong();
+        var limiter = RateLimiter.tokenBucket(3, 1, 10, clock::get);
+        var key = UUID.randomUUID();
+        assertTrue(limiter.tryAcquire(key, 3));
+        assertFalse(limiter.tryAcquire(key));
+        // other keys have their own bucket
+        assertTrue(limiter.tryAcquire("other"));
+        clock.addAndGet(10);
+        assertTrue(limiter.tryAcquire(key));
+        assertFalse(limiter.tryAcquire(key));
+    }
+
+    @Test
+    void slidingWindow() {
+        var clock = new AtomicLong();
+        var limiter = RateLimiter.slidingWindow(4, 20, clock::get);
+        for (var i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire("key"));
+        }
+        assertFalse(limiter.tryAcquire("key"));
+        // half of the previous window is still inside the sliding window
+        clock.set(30);
+        assertTrue(limiter.tryAcquire("key", 2));
+        assertFalse(limiter.tryAcquire("key"));
+    }
+
+    @Test
+    void idleKeysExpire() {
+        var clock = new AtomicLong();
+        var limiter = RateLimiter.tokenBucket(1, 1, 10, clock::get);
+        for (var i = 0; i < 1000; i++) {
+            limiter.tryAcquire(UUID.randomUUID());
+        }
+        clock.addAndGet(10);
+        for (var i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire(UUID.randomUUID()));
+        }
+        assertTrue(limiter.size() < 2000);
+        var key = UUID.randomUUID();
+        assertTrue(limiter.tryAcquire(key));
+        limiter.reset(key);
+        assertTrue(limiter.tryAcquire(key));
+        assertFalse(limiter.tryAcquire(key));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *     SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ *     Copyright (C) EldoriaRPG Team and Contributor
+ */
+
+package de.eldoria.eldoutilities.threading.scheduler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalTaskSchedulerTest {
+    private final LocalTaskScheduler scheduler = new LocalTaskScheduler(4);
+
+    @AfterEach
+    void close() {
+        scheduler.close();
+    }
+
+    @Test
+    void regionOwnership() throws Exception {
+        var region = scheduler.region(null, 0, 0);
+        var owned = new CompletableFuture<Boolean>();
+        region.run(() -> owned.complete(region.isOwnedByCurrentThread() && !scheduler.global().isOwnedByCurrentThread()));
+        assertTrue(owned.get(1, TimeUnit.SECONDS));
+        assertFalse(region.isOwnedByCurrentThread());
+    }
+
+    @Test
+    void chunksOfRegionShareThread() throws Exception {
+        var first = new CompletableFuture<Thread>();
+        var second = new CompletableFuture<Thread>();
+        scheduler.region(null, 0, 0).run(() -> first.complete(Thread.currentThread()));
+        scheduler.region(null, 7, 7).run(() -> second.complete(Thread.currentThread()));
+        assertEquals(first.get(1, TimeUnit.SECONDS), second.get(1, TimeUnit.SECONDS));
+        var global = new CompletableFuture<Thread>();
+        scheduler.global().run(() -> global.complete(Thread.currentThread()));
+        assertNotEquals(first.get(), global.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void timerCancel() throws Exception {
+        var runs = new AtomicInteger();
+        var latch = new CountDownLatch(2);
+        var handle = scheduler.global().runTimer(() -> {
+            runs.incrementAndGet();
+            latch.countDown();
+        }, 0, 1);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        handle.cancel();
+        assertTrue(handle.isCancelled());
+        var count = runs.get();
+        Thread.sleep(150);
+        assertTrue(runs.get() <= count + 1);
+    }
+}
@@ -8,4 +8,7 @@ dependencies {
     api(project(":messaging")) {
         exclude("org.spigotmc")
     }
+    api(project(":threading")) {
+        exclude("org.spigotmc")
+    }
 }
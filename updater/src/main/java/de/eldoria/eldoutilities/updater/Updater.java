@@ -7,6 +7,7 @@
 package de.eldoria.eldoutilities.updater;
 
 import de.eldoria.eldoutilities.messages.MessageSender;
+import de.eldoria.eldoutilities.threading.TaskScope;
 import de.eldoria.eldoutilities.updater.butlerupdater.ButlerUpdateChecker;
 import de.eldoria.eldoutilities.updater.butlerupdater.ButlerUpdateData;
 import de.eldoria.eldoutilities.updater.lynaupdater.LynaUpdateChecker;
@@ -35,12 +36,7 @@ public abstract class Updater<V extends UpdateResponse, T extends UpdateData<V>>
     private final Plugin plugin;
     private final T data;
     private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
-        var thread = new Thread(r);
-        thread.setName("EldoUtilititesUpdateChecker");
-        thread.setDaemon(true);
-        return thread;
-    });
+    private final ScheduledExecutorService executor;
     private boolean notifyActive;
     private boolean updateAvailable;
     private boolean downloaded;
@@ -49,6 +45,13 @@ public abstract class Updater<V extends UpdateResponse, T extends UpdateData<V>>
     protected Updater(T data) {
         this.plugin = data.plugin();
         this.data = data;
+        // the executor is shut down with the task scope of the plugin
+        executor = TaskScope.of(plugin).track("update checker", Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r);
+            thread.setName("EldoUtilititesUpdateChecker");
+            thread.setDaemon(true);
+            return thread;
+        }));
     }
 
     /**